@@ -0,0 +1,176 @@
+package io.github.libxposed.api;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log records to the framework on a background thread. Callers enqueue records into a bounded
+ * lock-free ring buffer (a Vyukov MPMC queue); a daemon thread drains it and hands each batch to the
+ * framework with a single {@link XposedInterface#log(List)} call.
+ */
+final class AsyncLogger {
+    private static final String TAG = "XposedLog";
+    private static final int BATCH_SIZE = 64;
+    private static final long IDLE_NANOS = 1_000_000_000L;
+
+    private record Entry(int priority, String tag, String msg, Throwable tr) implements XposedInterface.LogRecord {
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String getTag() {
+            return tag;
+        }
+
+        @NonNull
+        @Override
+        public String getMessage() {
+            return msg;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return tr;
+        }
+    }
+
+    private final XposedInterface sink;
+    private final XposedInterfaceWrapper.LogOverflowPolicy policy;
+    private final int mask;
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread drainer;
+    private volatile boolean idle;
+
+    AsyncLogger(XposedInterface sink, int capacity, XposedInterfaceWrapper.LogOverflowPolicy policy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        // The queue needs at least two slots to tell a full buffer from an empty one
+        int size = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.sink = sink;
+        this.policy = policy;
+        this.mask = size - 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.drainer = new Thread(this::drain, TAG);
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    void log(int priority, String tag, String msg, Throwable tr) {
+        var entry = new Entry(priority, tag, msg, tr);
+        while (!offer(entry)) {
+            if (policy == XposedInterfaceWrapper.LogOverflowPolicy.DROP_NEWEST) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+        if (idle) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    private boolean offer(Entry entry) {
+        long pos = tail.get();
+        for (; ; ) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    entries.lazySet(index, entry);
+                    sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    private Entry poll() {
+        long pos = head.get();
+        for (; ; ) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    var entry = entries.get(index);
+                    entries.lazySet(index, null);
+                    sequences.set(index, pos + mask + 1);
+                    return entry;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        long pos = head.get();
+        return sequences.get((int) pos & mask) - (pos + 1) < 0;
+    }
+
+    private void drain() {
+        var batch = new ArrayList<Entry>(BATCH_SIZE + 1);
+        long reported = 0;
+        for (; ; ) {
+            Entry entry;
+            while (batch.size() < BATCH_SIZE && (entry = poll()) != null) {
+                batch.add(entry);
+            }
+            long current = dropped.get();
+            if (current != reported) {
+                batch.add(new Entry(Log.WARN, TAG, (current - reported) + " log records dropped because the buffer was full", null));
+                reported = current;
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+                continue;
+            }
+            idle = true;
+            if (isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        try {
+            sink.log(batch);
+        } catch (Throwable ignored) {
+            // Keep draining; there is nowhere left to report a broken log sink
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.github.libxposed.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Handle of a key in a remote preferences group, see
+ * {@link XposedInterface#getPreferenceKey(String, String, Class, Object)}.
+ *
+ * <p>A key resolves its slot in the latest {@link RemotePreferencesSnapshot} of the group once, and
+ * only resolves it again after the snapshot is replaced. A read is then a check that the snapshot is
+ * still the one the slot was resolved in, plus an array access; the key string is neither hashed nor
+ * compared. {@link IntKey} and {@link BooleanKey} read primitives without boxing.</p>
+ *
+ * <p>Keys are thread-safe. Like the getters of {@link RemotePreferencesSnapshot}, reads throw
+ * {@link ClassCastException} if the stored value has a different type.</p>
+ *
+ * @param <T> The type of the value
+ */
+public abstract class PreferenceKey<T> {
+    /**
+     * Slot of the key in a snapshot. Immutable, so it can be published through a plain field.
+     */
+    private static final class Resolution {
+        final RemotePreferencesSnapshot snapshot;
+        final int slot;
+
+        Resolution(RemotePreferencesSnapshot snapshot, int slot) {
+            this.snapshot = snapshot;
+            this.slot = slot;
+        }
+    }
+
+    private final Supplier<RemotePreferencesSnapshot> source;
+    private final String name;
+    private Resolution resolution;
+
+    private PreferenceKey(Supplier<RemotePreferencesSnapshot> source, String name) {
+        this.source = Objects.requireNonNull(source);
+        this.name = Objects.requireNonNull(name);
+    }
+
+    /**
+     * Creates a key. Frameworks call this with a source returning the latest snapshot of the group
+     * without lookups; modules get keys from {@link XposedInterface} instead.
+     *
+     * @param source   The source of the latest snapshot of the group
+     * @param name     The key
+     * @param type     The boxed type of the value
+     * @param defValue The value to return if the key is absent
+     * @param <T>      The type of the value
+     * @return The key
+     * @throws IllegalArgumentException if {@code type} is a primitive type
+     */
+    @NonNull
+    public static <T> PreferenceKey<T> of(@NonNull Supplier<RemotePreferencesSnapshot> source, @NonNull String name,
+                                          @NonNull Class<T> type, @Nullable T defValue) {
+        return new ObjectKey<>(source, name, type, defValue);
+    }
+
+    /**
+     * Creates an {@code int} key, see {@link #of(Supplier, String, Class, Object)}.
+     *
+     * @param source   The source of the latest snapshot of the group
+     * @param name     The key
+     * @param defValue The value to return if the key is absent
+     * @return The key
+     */
+    @NonNull
+    public static IntKey ofInt(@NonNull Supplier<RemotePreferencesSnapshot> source, @NonNull String name, int defValue) {
+        return new IntKey(source, name, defValue);
+    }
+
+    /**
+     * Creates a {@code boolean} key, see {@link #of(Supplier, String, Class, Object)}.
+     *
+     * @param source   The source of the latest snapshot of the group
+     * @param name     The key
+     * @param defValue The value to return if the key is absent
+     * @return The key
+     */
+    @NonNull
+    public static BooleanKey ofBoolean(@NonNull Supplier<RemotePreferencesSnapshot> source, @NonNull String name, boolean defValue) {
+        return new BooleanKey(source, name, defValue);
+    }
+
+    /**
+     * Gets the key string.
+     *
+     * @return The key
+     */
+    @NonNull
+    public final String getName() {
+        return name;
+    }
+
+    /**
+     * Checks whether the latest snapshot of the group contains a value for the key.
+     *
+     * @return {@code true} if a value exists
+     */
+    public final boolean isPresent() {
+        var snapshot = snapshot();
+        return slot(snapshot) >= 0;
+    }
+
+    /**
+     * Reads the value from the latest snapshot of the group.
+     *
+     * @return The value, or the default value if the key is absent
+     */
+    @Nullable
+    public abstract T get();
+
+    final RemotePreferencesSnapshot snapshot() {
+        return source.get();
+    }
+
+    final int slot(RemotePreferencesSnapshot snapshot) {
+        var resolution = this.resolution;
+        if (resolution == null || resolution.snapshot != snapshot) {
+            resolution = new Resolution(snapshot, snapshot.slotOf(name));
+            this.resolution = resolution;
+        }
+        return resolution.slot;
+    }
+
+    private static final class ObjectKey<T> extends PreferenceKey<T> {
+        private final Class<T> type;
+        private final T defValue;
+
+        ObjectKey(Supplier<RemotePreferencesSnapshot> source, String name, Class<T> type, T defValue) {
+            super(source, name);
+            if (type.isPrimitive()) {
+                // Values are stored boxed, so type.cast would always fail
+                throw new IllegalArgumentException("Use the boxed type instead of " + type + " for " + name);
+            }
+            this.type = type;
+            this.defValue = defValue;
+        }
+
+        @Nullable
+        @Override
+        public T get() {
+            var snapshot = snapshot();
+            int slot = slot(snapshot);
+            return slot < 0 ? defValue : type.cast(snapshot.valueAt(slot));
+        }
+    }
+
+    /**
+     * Key of an {@code int} value.
+     */
+    public static final class IntKey extends PreferenceKey<Integer> {
+        private final int defValue;
+
+        private IntKey(Supplier<RemotePreferencesSnapshot> source, String name, int defValue) {
+            super(source, name);
+            this.defValue = defValue;
+        }
+
+        /**
+         * Reads the value from the latest snapshot of the group without boxing.
+         *
+         * @return The value, or the default value if the key is absent
+         */
+        public int getInt() {
+            var snapshot = snapshot();
+            int slot = slot(snapshot);
+            return slot < 0 ? defValue : snapshot.intAt(slot, getName());
+        }
+
+        @NonNull
+        @Override
+        public Integer get() {
+            return getInt();
+        }
+    }
+
+    /**
+     * Key of a {@code boolean} value.
+     */
+    public static final class BooleanKey extends PreferenceKey<Boolean> {
+        private final boolean defValue;
+
+        private BooleanKey(Supplier<RemotePreferencesSnapshot> source, String name, boolean defValue) {
+            super(source, name);
+            this.defValue = defValue;
+        }
+
+        /**
+         * Reads the value from the latest snapshot of the group without boxing.
+         *
+         * @return The value, or the default value if the key is absent
+         */
+        public boolean getBoolean() {
+            var snapshot = snapshot();
+            int slot = slot(snapshot);
+            return slot < 0 ? defValue : snapshot.booleanAt(slot, getName());
+        }
+
+        @NonNull
+        @Override
+        public Boolean get() {
+            return getBoolean();
+        }
+    }
+}
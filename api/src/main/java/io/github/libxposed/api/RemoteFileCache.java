@@ -0,0 +1,166 @@
+package io.github.libxposed.api;
+
+import android.os.ParcelFileDescriptor;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+
+/**
+ * Per-process cache of remote file listings, descriptors and mappings. Everything cached belongs to
+ * one generation of the module's shared data directory and is dropped when the framework reports a
+ * newer one. Framework calls are made outside the lock, so a slow call does not block cache hits.
+ */
+final class RemoteFileCache {
+    private static final class Entry {
+        final ParcelFileDescriptor descriptor;
+        MappedByteBuffer mapping;
+
+        Entry(ParcelFileDescriptor descriptor) {
+            this.descriptor = descriptor;
+        }
+    }
+
+    private final XposedInterface base;
+    private final int maxOpenFiles;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation = -1;
+    private String[] list;
+
+    RemoteFileCache(XposedInterface base, int maxOpenFiles) {
+        if (maxOpenFiles <= 0) {
+            throw new IllegalArgumentException("Invalid maxOpenFiles: " + maxOpenFiles);
+        }
+        this.base = base;
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    String[] listRemoteFiles() {
+        long current = base.getRemoteFilesGeneration();
+        synchronized (this) {
+            if (validate(current) && list != null) {
+                return list.clone();
+            }
+        }
+        var fresh = base.listRemoteFiles();
+        synchronized (this) {
+            if (isCurrent(current)) {
+                list = fresh.clone();
+            }
+        }
+        return fresh;
+    }
+
+    ParcelFileDescriptor openRemoteFile(String name) throws FileNotFoundException {
+        long current = base.getRemoteFilesGeneration();
+        synchronized (this) {
+            if (validate(current)) {
+                var entry = entries.get(name);
+                if (entry != null) {
+                    try {
+                        return entry.descriptor.dup();
+                    } catch (IOException e) {
+                        // Out of descriptors or the like; fall back to the framework
+                    }
+                }
+            }
+        }
+        var descriptor = base.openRemoteFile(name);
+        synchronized (this) {
+            if (isCurrent(current) && !entries.containsKey(name)) {
+                try {
+                    var copy = descriptor.dup();
+                    entries.put(name, new Entry(copy));
+                    evict();
+                } catch (IOException e) {
+                    // Serve this call uncached
+                }
+            }
+        }
+        return descriptor;
+    }
+
+    MappedByteBuffer mapRemoteFile(String name) throws IOException {
+        long current = base.getRemoteFilesGeneration();
+        synchronized (this) {
+            if (validate(current)) {
+                var entry = entries.get(name);
+                if (entry != null) {
+                    try {
+                        if (entry.mapping == null) {
+                            entry.mapping = map(entry.descriptor.dup(), name);
+                        }
+                        return (MappedByteBuffer) entry.mapping.duplicate();
+                    } catch (IOException e) {
+                        // Out of descriptors or address space; drop the entry and serve this call uncached
+                        entries.remove(name);
+                        close(entry);
+                    }
+                }
+            }
+        }
+        // Caches the descriptor on the way, so the next call maps from it
+        return map(openRemoteFile(name), name);
+    }
+
+    /**
+     * Drops the cache if the generation advanced. A lower generation comes from a caller that read it
+     * before another caller cached a newer one, so it misses without dropping the newer entries.
+     *
+     * @return {@code true} if the cache is valid for the generation
+     */
+    private boolean validate(long current) {
+        if (current < 0) {
+            // The framework cannot track changes
+            clear();
+            generation = -1;
+            return false;
+        }
+        if (current > generation) {
+            clear();
+            generation = current;
+        }
+        return current == generation;
+    }
+
+    private boolean isCurrent(long current) {
+        return current >= 0 && current == generation;
+    }
+
+    private void clear() {
+        for (var entry : entries.values()) {
+            close(entry);
+        }
+        entries.clear();
+        list = null;
+    }
+
+    private void evict() {
+        var iterator = entries.values().iterator();
+        while (entries.size() > maxOpenFiles) {
+            close(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static void close(Entry entry) {
+        try {
+            // Descriptors handed out are duplicates, and mappings outlive their descriptor
+            entry.descriptor.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static MappedByteBuffer map(ParcelFileDescriptor descriptor, String name) throws IOException {
+        try (var in = new ParcelFileDescriptor.AutoCloseInputStream(descriptor)) {
+            var channel = in.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + name);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+}
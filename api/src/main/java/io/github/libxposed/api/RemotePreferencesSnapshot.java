@@ -0,0 +1,290 @@
+package io.github.libxposed.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a remote preferences group, see
+ * {@link XposedInterface#getRemotePreferencesSnapshot(String)}.
+ *
+ * <p>Values are kept in a flat open-addressing hash table with primitives stored unboxed, so reads are
+ * local, lock-free and do not allocate. Like {@link android.content.SharedPreferences}, getters throw
+ * {@link ClassCastException} if the stored value has a different type.</p>
+ */
+public final class RemotePreferencesSnapshot {
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_STRING_SET = 6;
+
+    private final long generation;
+    private final int size;
+    private final int mask;
+    private final String[] keys;
+    private final int[] hashes;
+    private final byte[] types;
+    private final long[] primitives;
+    private final Object[] objects;
+
+    private RemotePreferencesSnapshot(long generation, Map<String, ?> values) {
+        this.generation = generation;
+        int capacity = Integer.highestOneBit(Math.max(1, values.size() * 2 - 1)) << 1;
+        this.mask = capacity - 1;
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.types = new byte[capacity];
+        this.primitives = new long[capacity];
+        this.objects = new Object[capacity];
+        int count = 0;
+        for (var entry : values.entrySet()) {
+            var key = entry.getKey();
+            var value = entry.getValue();
+            if (key == null) {
+                throw new IllegalArgumentException("Null key");
+            }
+            if (value == null) {
+                continue;
+            }
+            int hash = hash(key);
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            hashes[slot] = hash;
+            if (value instanceof Integer i) {
+                types[slot] = TYPE_INT;
+                primitives[slot] = i;
+            } else if (value instanceof Long l) {
+                types[slot] = TYPE_LONG;
+                primitives[slot] = l;
+            } else if (value instanceof Float f) {
+                types[slot] = TYPE_FLOAT;
+                primitives[slot] = Float.floatToRawIntBits(f);
+            } else if (value instanceof Boolean b) {
+                types[slot] = TYPE_BOOLEAN;
+                primitives[slot] = b ? 1 : 0;
+            } else if (value instanceof String) {
+                types[slot] = TYPE_STRING;
+                objects[slot] = value;
+            } else if (value instanceof Set<?> set) {
+                for (var element : set) {
+                    if (!(element instanceof String)) {
+                        throw new IllegalArgumentException("Set of " + key + " contains a non-string element");
+                    }
+                }
+                types[slot] = TYPE_STRING_SET;
+                objects[slot] = Collections.unmodifiableSet(new HashSet<>(set));
+            } else {
+                throw new IllegalArgumentException("Unsupported type of " + key + ": " + value.getClass().getName());
+            }
+            count++;
+        }
+        this.size = count;
+    }
+
+    /**
+     * Creates a snapshot. Frameworks call this when a group changes; modules have no need to.
+     *
+     * @param generation The generation of the group, increased by the framework on every change
+     * @param values     The values of the group, of the types supported by
+     *                   {@link android.content.SharedPreferences}. Entries with {@code null} values
+     *                   are skipped.
+     * @return The snapshot
+     * @throws IllegalArgumentException if a key is {@code null} or a value has an unsupported type
+     */
+    @NonNull
+    public static RemotePreferencesSnapshot of(long generation, @NonNull Map<String, ?> values) {
+        return new RemotePreferencesSnapshot(generation, values);
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the slot holding a key.
+     *
+     * @return The slot, or {@code -1} if the key is absent
+     */
+    int slotOf(String key) {
+        int hash = hash(key);
+        int slot = hash & mask;
+        for (; ; ) {
+            var k = keys[slot];
+            if (k == null) {
+                return -1;
+            }
+            if (k == key || (hashes[slot] == hash && k.equals(key))) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int slotOf(String key, byte type) {
+        int slot = slotOf(key);
+        if (slot >= 0 && types[slot] != type) {
+            throw new ClassCastException("Value of " + key + " has a different type");
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the generation of the group this snapshot was taken at.
+     *
+     * @return The generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Gets the number of values in the snapshot.
+     *
+     * @return The number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the snapshot contains a value for the key.
+     *
+     * @param key The key of the value
+     * @return {@code true} if a value exists
+     */
+    public boolean contains(@NonNull String key) {
+        return slotOf(key) >= 0;
+    }
+
+    /**
+     * Gets an {@code int} value.
+     *
+     * @param key      The key of the value
+     * @param defValue The value to return if the key is absent
+     * @return The value
+     * @throws ClassCastException if the value is not an {@code int}
+     */
+    public int getInt(@NonNull String key, int defValue) {
+        int slot = slotOf(key, TYPE_INT);
+        return slot < 0 ? defValue : (int) primitives[slot];
+    }
+
+    /**
+     * Gets a {@code long} value.
+     *
+     * @param key      The key of the value
+     * @param defValue The value to return if the key is absent
+     * @return The value
+     * @throws ClassCastException if the value is not a {@code long}
+     */
+    public long getLong(@NonNull String key, long defValue) {
+        int slot = slotOf(key, TYPE_LONG);
+        return slot < 0 ? defValue : primitives[slot];
+    }
+
+    /**
+     * Gets a {@code float} value.
+     *
+     * @param key      The key of the value
+     * @param defValue The value to return if the key is absent
+     * @return The value
+     * @throws ClassCastException if the value is not a {@code float}
+     */
+    public float getFloat(@NonNull String key, float defValue) {
+        int slot = slotOf(key, TYPE_FLOAT);
+        return slot < 0 ? defValue : Float.intBitsToFloat((int) primitives[slot]);
+    }
+
+    /**
+     * Gets a {@code boolean} value.
+     *
+     * @param key      The key of the value
+     * @param defValue The value to return if the key is absent
+     * @return The value
+     * @throws ClassCastException if the value is not a {@code boolean}
+     */
+    public boolean getBoolean(@NonNull String key, boolean defValue) {
+        int slot = slotOf(key, TYPE_BOOLEAN);
+        return slot < 0 ? defValue : primitives[slot] != 0;
+    }
+
+    /**
+     * Gets a string value.
+     *
+     * @param key      The key of the value
+     * @param defValue The value to return if the key is absent
+     * @return The value
+     * @throws ClassCastException if the value is not a string
+     */
+    @Nullable
+    public String getString(@NonNull String key, @Nullable String defValue) {
+        int slot = slotOf(key, TYPE_STRING);
+        return slot < 0 ? defValue : (String) objects[slot];
+    }
+
+    /**
+     * Gets a string set value.
+     *
+     * @param key      The key of the value
+     * @param defValue The value to return if the key is absent
+     * @return The value, which is unmodifiable
+     * @throws ClassCastException if the value is not a string set
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(@NonNull String key, @Nullable Set<String> defValue) {
+        int slot = slotOf(key, TYPE_STRING_SET);
+        return slot < 0 ? defValue : (Set<String>) objects[slot];
+    }
+
+    /**
+     * Copies all values of the snapshot into a new map. Unlike the getters, this allocates.
+     *
+     * @return The values, with primitives boxed
+     */
+    @NonNull
+    public Map<String, ?> getAll() {
+        var all = new HashMap<String, Object>(size * 2);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != null) {
+                all.put(keys[slot], valueAt(slot));
+            }
+        }
+        return all;
+    }
+
+    int intAt(int slot, String key) {
+        if (types[slot] != TYPE_INT) {
+            throw new ClassCastException("Value of " + key + " has a different type");
+        }
+        return (int) primitives[slot];
+    }
+
+    boolean booleanAt(int slot, String key) {
+        if (types[slot] != TYPE_BOOLEAN) {
+            throw new ClassCastException("Value of " + key + " has a different type");
+        }
+        return primitives[slot] != 0;
+    }
+
+    Object valueAt(int slot) {
+        return switch (types[slot]) {
+            case TYPE_INT -> (int) primitives[slot];
+            case TYPE_LONG -> primitives[slot];
+            case TYPE_FLOAT -> Float.intBitsToFloat((int) primitives[slot]);
+            case TYPE_BOOLEAN -> primitives[slot] != 0;
+            default -> objects[slot];
+        };
+    }
+}
@@ -8,11 +8,21 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 import io.github.libxposed.api.error.HookFailedError;
 
@@ -68,6 +78,11 @@ public interface XposedInterface {
 
     /**
      * Invoker for a method or constructor. Invocations through invokers will bypass access checks.
+     *
+     * <p>Invokers are immutable and safe to share among threads. The framework keeps at most one
+     * invoker per executable and {@link Type}, in a cache that holds executables weakly so it does not
+     * prevent class unloading. Modules can therefore obtain invokers where they need them instead of
+     * managing their own caches.</p>
      */
     interface Invoker<T extends Invoker<T, U>, U extends Executable> {
         /**
@@ -100,8 +115,16 @@ public interface XposedInterface {
         }
 
         /**
-         * Sets the type of the invoker, which determines the hook chain to be invoked
+         * Gets the invoker of the given type for the same executable, which determines the hook chain
+         * to be invoked. This invoker is not modified; callers must use the returned invoker.
+         *
+         * <p>The returned invoker is the cached instance for the executable and type, so this method
+         * does not allocate after the first call for a given pair.</p>
+         *
+         * @param type The type of the invoker
+         * @return The invoker of the given type
          */
+        @NonNull
         T setType(@NonNull Type type);
 
         /**
@@ -132,6 +155,23 @@ public interface XposedInterface {
          * @see Method#invoke(Object, Object...)
          */
         Object invokeSpecial(@NonNull Object thisObject, Object... args) throws InvocationTargetException, IllegalArgumentException, IllegalAccessException;
+
+        /**
+         * Gets a method handle that invokes the method (or the constructor as a method) through the
+         * hook chain determined by the invoker's type, without varargs array allocation or access checks.
+         *
+         * <p>The handle has the same type as one obtained by {@link MethodHandles.Lookup#unreflect(Method)}:
+         * for instance methods the receiver is the leading parameter. For constructors, the handle takes
+         * the object to initialize as the leading parameter and returns {@code void}.</p>
+         *
+         * <p>The handle is bound to the invoker's type. It is safe to store the handle in a
+         * {@code static final} field, which allows the runtime to treat it as a constant.</p>
+         *
+         * @return The method handle
+         * @see MethodHandle#invokeExact(Object...)
+         */
+        @NonNull
+        MethodHandle getMethodHandle();
     }
 
     /**
@@ -165,11 +205,29 @@ public interface XposedInterface {
          */
         @NonNull
         <U> U newInstanceSpecial(@NonNull Class<U> subClass, Object... args) throws InvocationTargetException, IllegalArgumentException, IllegalAccessException, InstantiationException;
+
+        /**
+         * Gets a method handle that creates a new instance through the hook chain determined by the
+         * invoker's type. The handle has the same type as one obtained by
+         * {@link MethodHandles.Lookup#unreflectConstructor(Constructor)}.
+         *
+         * <p>The handle is bound to the invoker's type.</p>
+         *
+         * @return The method handle
+         * @see #newInstance(Object...)
+         */
+        @NonNull
+        MethodHandle getNewInstanceHandle();
     }
 
     /**
      * Interceptor chain for a method or constructor. Chain objects cannot be shared among threads or
      * reused after {@link Hooker#intercept(Chain)} ends.
+     *
+     * <p>The hooks of an executable form an immutable, priority-sorted snapshot. Hooking and unhooking
+     * atomically replace the snapshot instead of modifying it, so dispatching never takes a lock. A
+     * call runs through the snapshot that was current when it entered the chain; hooks added or removed
+     * meanwhile only affect later calls.</p>
      */
     interface Chain {
         /**
@@ -185,8 +243,11 @@ public interface XposedInterface {
 
         /**
          * Gets the arguments. The returned list is immutable. If you want to change the arguments, you
-         * should call {@code proceed(Object...)} or {@code proceedWith(Object, Object...)} with the new
-         * arguments.
+         * should call {@link #setArg(int, Object)} before proceeding, or call {@code proceed(Object...)}
+         * or {@code proceedWith(Object, Object...)} with the new arguments.
+         *
+         * <p>Primitive arguments are boxed in the returned list. Hookers that only inspect a few
+         * primitive arguments should prefer the typed accessors such as {@link #getIntArg(int)}.</p>
          */
         @NonNull
         List<Object> getArgs();
@@ -201,9 +262,197 @@ public interface XposedInterface {
          */
         Object getArg(int index) throws IndexOutOfBoundsException, ClassCastException;
 
+        /**
+         * Gets the {@code boolean} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code boolean}
+         */
+        boolean getBooleanArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code byte} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code byte}
+         */
+        byte getByteArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code char} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code char}
+         */
+        char getCharArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code short} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code short}
+         */
+        short getShortArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code int} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not an {@code int}
+         */
+        int getIntArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code long} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code long}
+         */
+        long getLongArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code float} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code float}
+         */
+        float getFloatArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Gets the {@code double} argument at the given index without boxing.
+         *
+         * @param index The argument index
+         * @return The argument at the given index
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code double}
+         */
+        double getDoubleArg(int index) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the argument at the given index in place, without copying the argument array.
+         *
+         * <p>The new value is visible to subsequent argument getters of this chain and is forwarded to
+         * the next interceptor by {@link #proceed()}, {@link #proceedWith(Object)} and the
+         * {@code proceedAs*()} variants. Interceptors earlier in the chain are not affected: their
+         * chains still report the arguments they proceeded with. {@link #proceed(Object[])} and
+         * {@link #proceedWith(Object, Object[])} ignore any values set by this method.</p>
+         *
+         * @param index The argument index
+         * @param value The new argument; primitive parameters accept the corresponding boxed type
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the value cannot be assigned to the parameter type
+         */
+        void setArg(int index, Object value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code boolean} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code boolean}
+         * @see #setArg(int, Object)
+         */
+        void setBooleanArg(int index, boolean value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code byte} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code byte}
+         * @see #setArg(int, Object)
+         */
+        void setByteArg(int index, byte value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code char} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code char}
+         * @see #setArg(int, Object)
+         */
+        void setCharArg(int index, char value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code short} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code short}
+         * @see #setArg(int, Object)
+         */
+        void setShortArg(int index, short value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code int} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not an {@code int}
+         * @see #setArg(int, Object)
+         */
+        void setIntArg(int index, int value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code long} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code long}
+         * @see #setArg(int, Object)
+         */
+        void setLongArg(int index, long value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code float} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code float}
+         * @see #setArg(int, Object)
+         */
+        void setFloatArg(int index, float value) throws IndexOutOfBoundsException, ClassCastException;
+
+        /**
+         * Replaces the {@code double} argument at the given index in place without boxing.
+         *
+         * @param index The argument index
+         * @param value The new argument
+         * @throws IndexOutOfBoundsException if index is out of bounds
+         * @throws ClassCastException        if the parameter at the given index is not a {@code double}
+         * @see #setArg(int, Object)
+         */
+        void setDoubleArg(int index, double value) throws IndexOutOfBoundsException, ClassCastException;
+
         /**
          * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer.
          *
+         * <p>The arguments are forwarded as they are, including any replaced by {@link #setArg(int, Object)}
+         * and its primitive variants; the framework does not box primitive arguments or materialize an
+         * argument list for this call.</p>
+         *
          * @return The result returned from next interceptor or the original executable if current
          * interceptor is the last one in the chain.
          * <p>For void methods and constructors, always returns {@code null}.</p>
@@ -211,6 +460,102 @@ public interface XposedInterface {
          */
         Object proceed() throws Throwable;
 
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code boolean} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code boolean}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see BooleanHooker
+         */
+        boolean proceedAsBoolean() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code byte} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code byte}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see ByteHooker
+         */
+        byte proceedAsByte() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code char} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code char}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see CharHooker
+         */
+        char proceedAsChar() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code short} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code short}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see ShortHooker
+         */
+        short proceedAsShort() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code int} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not an {@code int}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see IntHooker
+         */
+        int proceedAsInt() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code long} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code long}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see LongHooker
+         */
+        long proceedAsLong() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code float} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code float}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see FloatHooker
+         */
+        float proceedAsFloat() throws Throwable;
+
+        /**
+         * Proceeds to the next interceptor in the chain with the same arguments and {@code this} pointer,
+         * and returns the result as {@code double} without boxing.
+         *
+         * @return The result returned from next interceptor or the original executable if current
+         * interceptor is the last one in the chain.
+         * @throws ClassCastException if the return type of the executable is not a {@code double}
+         * @throws Throwable          if any interceptor or the original executable throws an exception
+         * @see DoubleHooker
+         */
+        double proceedAsDouble() throws Throwable;
+
         /**
          * Proceeds to the next interceptor in the chain with the given arguments and the same {@code this} pointer.
          *
@@ -250,6 +595,9 @@ public interface XposedInterface {
 
     /**
      * Hooker for a method or constructor.
+     *
+     * <p>Results of primitive-returning methods are boxed when they pass through this hooker. For hot
+     * methods, consider the primitive specializations such as {@link IntHooker} instead.</p>
      */
     interface Hooker {
         /**
@@ -266,67 +614,268 @@ public interface XposedInterface {
     }
 
     /**
-     * Handle for a hook.
+     * Hooker for a method returning {@code boolean}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptBoolean(BooleanHooker)
      */
-    interface HookHandle {
-        /**
-         * Gets the method / constructor being hooked.
-         */
-        @NonNull
-        Executable getExecutable();
-
+    interface BooleanHooker {
         /**
-         * Cancels the hook. This method is idempotent. It is safe to call this method multiple times.
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsBoolean()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
          */
-        void unhook();
+        boolean intercept(@NonNull Chain chain) throws Throwable;
     }
 
     /**
-     * Exception handling mode for hookers. This determines how the framework handles exceptions
-     * thrown by hookers. The default mode is {@link ExceptionMode#DEFAULT}.
+     * Hooker for a method returning {@code byte}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptByte(ByteHooker)
      */
-    enum ExceptionMode {
+    interface ByteHooker {
         /**
-         * Follows the global exception mode configured in {@code module.prop}. Defaults to {@link #PROTECTIVE}
-         * if not specified.
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsByte()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
          */
-        DEFAULT,
+        byte intercept(@NonNull Chain chain) throws Throwable;
+    }
 
+    /**
+     * Hooker for a method returning {@code char}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptChar(CharHooker)
+     */
+    interface CharHooker {
         /**
-         * Any exception thrown by the <b>hooker</b> will be caught and logged, and the call will proceed as
-         * if no hook exists. This mode is recommended for most cases, as it can prevent crashes caused by
-         * hook errors.
-         * <p>
-         * If the exception is thrown before {@link Chain#proceed()}, the framework will
-         * continue the chain without the hook; if the exception is thrown after proceed, the framework
-         * will return the value / exception proceeded as the result.
-         * </p>
-         * <p>Exceptions thrown by proceed will always be propagated.</p>
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsChar()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
          */
-        PROTECTIVE,
+        char intercept(@NonNull Chain chain) throws Throwable;
+    }
 
+    /**
+     * Hooker for a method returning {@code short}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptShort(ShortHooker)
+     */
+    interface ShortHooker {
         /**
-         * Any exception thrown by the hooker will be propagated to the caller as usual. This mode is
-         * recommended for debugging purposes, as it can help you find and fix errors in your hooks.
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsShort()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
          */
-        PASSTHROUGH,
+        short intercept(@NonNull Chain chain) throws Throwable;
     }
 
     /**
-     * Builder for configuring a hook.
+     * Hooker for a method returning {@code int}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptInt(IntHooker)
      */
-    interface HookBuilder {
+    interface IntHooker {
         /**
-         * Sets the priority of the hook. Hooks with higher priority will be called before hooks with lower
-         * priority. The default priority is {@link XposedInterface#PRIORITY_DEFAULT}.
+         * Intercepts a method call.
          *
-         * @param priority The priority of the hook
-         * @return The builder itself for chaining
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsInt()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
          */
-        HookBuilder setPriority(int priority);
+        int intercept(@NonNull Chain chain) throws Throwable;
+    }
 
+    /**
+     * Hooker for a method returning {@code long}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptLong(LongHooker)
+     */
+    interface LongHooker {
         /**
-         * Sets the exception handling mode for the hook. The default mode is {@link ExceptionMode#DEFAULT}.
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsLong()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
+         */
+        long intercept(@NonNull Chain chain) throws Throwable;
+    }
+
+    /**
+     * Hooker for a method returning {@code float}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptFloat(FloatHooker)
+     */
+    interface FloatHooker {
+        /**
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsFloat()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
+         */
+        float intercept(@NonNull Chain chain) throws Throwable;
+    }
+
+    /**
+     * Hooker for a method returning {@code double}. The result is passed through the interceptor chain
+     * without boxing.
+     *
+     * @see HookBuilder#interceptDouble(DoubleHooker)
+     */
+    interface DoubleHooker {
+        /**
+         * Intercepts a method call.
+         *
+         * @param chain The interceptor chain for the call
+         * @return The result to be returned from the interceptor. If the hooker does not want to
+         * change the result, it should call {@code chain.proceedAsDouble()} and return its result.
+         * @throws Throwable Throw any exception from the interceptor. The exception will
+         *                   propagate to the caller if not caught by any interceptor.
+         */
+        double intercept(@NonNull Chain chain) throws Throwable;
+    }
+
+    /**
+     * Snapshot of the statistics of a hook, see {@link HookBuilder#setStatsEnabled(boolean)}.
+     *
+     * <p>Latencies only cover the time spent in the hooker itself; the time spent in the rest of the
+     * chain while the hooker is proceeding is excluded, so they measure the overhead the hooker adds
+     * to the call.</p>
+     */
+    interface HookStats {
+        /**
+         * Gets the number of times the hooker has been invoked.
+         */
+        long getInvocationCount();
+
+        /**
+         * Gets the number of times the hooker has thrown an exception, regardless of the
+         * {@link ExceptionMode} of the hook. Exceptions thrown by proceed and rethrown by the hooker
+         * are not counted.
+         */
+        long getExceptionCount();
+
+        /**
+         * Gets the cumulative latency of the hooker in nanoseconds.
+         */
+        long getTotalTimeNanos();
+
+        /**
+         * Gets an approximation of the given latency percentile in nanoseconds. The relative error
+         * depends on the histogram resolution of the framework.
+         *
+         * @param percentile The percentile, in the range {@code (0, 100]}
+         * @return The latency in nanoseconds, or {@code 0} if the hooker has never been invoked
+         * @throws IllegalArgumentException if percentile is out of range
+         */
+        long getPercentileNanos(double percentile);
+    }
+
+    /**
+     * Handle for a hook.
+     */
+    interface HookHandle {
+        /**
+         * Gets the method / constructor being hooked.
+         */
+        @NonNull
+        Executable getExecutable();
+
+        /**
+         * Gets a snapshot of the statistics of the hook. The snapshot does not change after it is
+         * returned.
+         *
+         * @return The statistics, or {@code null} if statistics are not enabled for the hook
+         * @see HookBuilder#setStatsEnabled(boolean)
+         */
+        @Nullable
+        HookStats getStats();
+
+        /**
+         * Cancels the hook. This method is idempotent. It is safe to call this method multiple times.
+         *
+         * <p>Unhooking never blocks or waits for concurrent calls of the hooked executable. Calls that
+         * have already entered the chain may still invoke the hooker; see {@link Chain}.</p>
+         */
+        void unhook();
+    }
+
+    /**
+     * Exception handling mode for hookers. This determines how the framework handles exceptions
+     * thrown by hookers. The default mode is {@link ExceptionMode#DEFAULT}.
+     */
+    enum ExceptionMode {
+        /**
+         * Follows the global exception mode configured in {@code module.prop}. Defaults to {@link #PROTECTIVE}
+         * if not specified.
+         */
+        DEFAULT,
+
+        /**
+         * Any exception thrown by the <b>hooker</b> will be caught and logged, and the call will proceed as
+         * if no hook exists. This mode is recommended for most cases, as it can prevent crashes caused by
+         * hook errors.
+         * <p>
+         * If the exception is thrown before {@link Chain#proceed()}, the framework will
+         * continue the chain without the hook; if the exception is thrown after proceed, the framework
+         * will return the value / exception proceeded as the result.
+         * </p>
+         * <p>Exceptions thrown by proceed will always be propagated.</p>
+         */
+        PROTECTIVE,
+
+        /**
+         * Any exception thrown by the hooker will be propagated to the caller as usual. This mode is
+         * recommended for debugging purposes, as it can help you find and fix errors in your hooks.
+         */
+        PASSTHROUGH,
+    }
+
+    /**
+     * Builder for configuring a hook.
+     */
+    interface HookBuilder {
+        /**
+         * Sets the priority of the hook. Hooks with higher priority will be called before hooks with lower
+         * priority. The default priority is {@link XposedInterface#PRIORITY_DEFAULT}.
+         *
+         * @param priority The priority of the hook
+         * @return The builder itself for chaining
+         */
+        HookBuilder setPriority(int priority);
+
+        /**
+         * Sets the exception handling mode for the hook. The default mode is {@link ExceptionMode#DEFAULT}.
          *
          * @param mode The exception handling mode
          * @return The builder itself for chaining
@@ -334,7 +883,21 @@ public interface XposedInterface {
         HookBuilder setExceptionMode(@NonNull ExceptionMode mode);
 
         /**
-         * Sets the hooker for the method / constructor and builds the hook.
+         * Sets whether the framework records statistics for the hook, which are then available through
+         * {@link HookHandle#getStats()}. Statistics are disabled by default.
+         *
+         * <p>The framework records statistics in per-thread or striped counters, so enabling them does not
+         * serialize concurrent calls of the hooked method. The remaining cost is reading a monotonic
+         * clock around the hooker.</p>
+         *
+         * @param enabled Whether to record statistics
+         * @return The builder itself for chaining
+         */
+        HookBuilder setStatsEnabled(boolean enabled);
+
+        /**
+         * Sets the hooker for the method / constructor and builds the hook. The hook takes effect for
+         * calls entering the chain after this method returns.
          *
          * @param hooker The hooker object
          * @return The handle for the hook
@@ -344,6 +907,422 @@ public interface XposedInterface {
          */
         @NonNull
         HookHandle intercept(@NonNull Hooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code boolean} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link BooleanHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code boolean}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptBoolean(@NonNull BooleanHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code byte} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link ByteHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code byte}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptByte(@NonNull ByteHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code char} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link CharHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code char}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptChar(@NonNull CharHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code short} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link ShortHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code short}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptShort(@NonNull ShortHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code int} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link IntHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code int}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptInt(@NonNull IntHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code long} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link LongHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code long}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptLong(@NonNull LongHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code float} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link FloatHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code float}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptFloat(@NonNull FloatHooker hooker);
+
+        /**
+         * Sets a primitive specialized hooker for a method returning {@code double} and builds the hook.
+         *
+         * <p>As long as every interceptor hooking the method is a {@link DoubleHooker}, the result is
+         * passed through the whole chain without boxing. A generic {@link Hooker} in the chain only
+         * boxes the result at its own link.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the hook
+         * @throws IllegalArgumentException if origin is not a method returning {@code double}, is framework
+         *                                  internal, or hooker is invalid
+         * @throws HookFailedError          if hook fails due to framework internal error
+         */
+        @NonNull
+        HookHandle interceptDouble(@NonNull DoubleHooker hooker);
+    }
+
+    /**
+     * Handle for a deferred hook, which is installed when the declaring class of its target is
+     * initialized.
+     *
+     * @see XposedInterface#hookDeferred(ClassLoader, String, String, String)
+     */
+    interface DeferredHookHandle {
+        /**
+         * Returns whether the hook has been installed.
+         */
+        boolean isInstalled();
+
+        /**
+         * Gets the handle of the installed hook.
+         *
+         * @return The handle, or {@code null} if the hook has not been installed yet
+         */
+        @Nullable
+        HookHandle getHookHandle();
+
+        /**
+         * Cancels the hook. If the hook has not been installed yet, it never will be. This method is
+         * idempotent. It is safe to call this method multiple times.
+         */
+        void unhook();
+    }
+
+    /**
+     * Builder for configuring a deferred hook.
+     *
+     * @see XposedInterface#hookDeferred(ClassLoader, String, String, String)
+     */
+    interface DeferredHookBuilder {
+        /**
+         * Sets the priority of the hook.
+         *
+         * @param priority The priority of the hook
+         * @return The builder itself for chaining
+         * @see HookBuilder#setPriority(int)
+         */
+        DeferredHookBuilder setPriority(int priority);
+
+        /**
+         * Sets the exception handling mode for the hook.
+         *
+         * @param mode The exception handling mode
+         * @return The builder itself for chaining
+         * @see HookBuilder#setExceptionMode(ExceptionMode)
+         */
+        DeferredHookBuilder setExceptionMode(@NonNull ExceptionMode mode);
+
+        /**
+         * Sets the hooker for the method / constructor and registers the deferred hook. If the target
+         * class is already initialized, the hook is installed immediately.
+         *
+         * <p>If the target cannot be resolved or hooked when its class is initialized, the error is
+         * written to the Xposed log and the hook stays uninstalled.</p>
+         *
+         * @param hooker The hooker object
+         * @return The handle for the deferred hook
+         * @throws IllegalArgumentException if hooker is invalid
+         */
+        @NonNull
+        DeferredHookHandle intercept(@NonNull Hooker hooker);
+    }
+
+    /**
+     * Builder for hooking many methods / constructors with the same hooker in a single framework
+     * transaction. The framework installs all hooks under one runtime suspension when the batch is
+     * committed, which is considerably cheaper than hooking the executables one by one.
+     */
+    interface HookBatch {
+        /**
+         * Result of a committed {@link HookBatch}.
+         */
+        interface Result {
+            /**
+             * Gets the handles of the hooks installed successfully, in the iteration order of the
+             * executables passed to {@link XposedInterface#hookAll(Collection)}.
+             */
+            @NonNull
+            List<HookHandle> getHandles();
+
+            /**
+             * Gets the executables that could not be hooked, mapped to the reason of the failure.
+             */
+            @NonNull
+            Map<Executable, HookFailedError> getFailures();
+
+            /**
+             * Returns whether all executables of the batch have been hooked.
+             */
+            default boolean isSuccessful() {
+                return getFailures().isEmpty();
+            }
+        }
+
+        /**
+         * Sets the priority of all hooks in the batch. The default priority is
+         * {@link XposedInterface#PRIORITY_DEFAULT}.
+         *
+         * @param priority The priority of the hooks
+         * @return The batch itself for chaining
+         * @see HookBuilder#setPriority(int)
+         */
+        HookBatch setPriority(int priority);
+
+        /**
+         * Sets the exception handling mode of all hooks in the batch. The default mode is
+         * {@link ExceptionMode#DEFAULT}.
+         *
+         * @param mode The exception handling mode
+         * @return The batch itself for chaining
+         * @see HookBuilder#setExceptionMode(ExceptionMode)
+         */
+        HookBatch setExceptionMode(@NonNull ExceptionMode mode);
+
+        /**
+         * Sets the hooker shared by all hooks in the batch. {@link Chain#getExecutable()} tells which
+         * executable is being intercepted.
+         *
+         * @param hooker The hooker object
+         * @return The batch itself for chaining
+         */
+        HookBatch setHooker(@NonNull Hooker hooker);
+
+        /**
+         * Installs all hooks of the batch in a single framework transaction. A failure to hook one
+         * executable does not abort the batch; it is reported in {@link Result#getFailures()} instead.
+         * A batch can only be committed once.
+         *
+         * @return The result of the batch
+         * @throws IllegalArgumentException if any origin is framework internal or {@link Constructor#newInstance},
+         *                                  or the hooker is missing or invalid. No hook is installed in
+         *                                  this case.
+         * @throws IllegalStateException    if the batch has already been committed
+         */
+        @NonNull
+        Result commit();
+    }
+
+    /**
+     * Metadata of a file in the module's shared data directory, see
+     * {@link #listRemoteFiles(String, RemoteFileVisitor)}.
+     */
+    interface RemoteFileInfo {
+        /**
+         * Gets the name of the file.
+         *
+         * @return The file name
+         */
+        @NonNull
+        String getName();
+
+        /**
+         * Gets the size of the file.
+         *
+         * @return The size in bytes
+         */
+        long getSize();
+
+        /**
+         * Gets the generation of the module's shared data directory in which the file was last
+         * changed, see {@link #getRemoteFilesGeneration()}.
+         *
+         * @return The generation of the last change
+         */
+        long getGeneration();
+
+        /**
+         * Gets the SHA-256 digest of the file content.
+         *
+         * @return A new array holding the 32 byte digest
+         */
+        @NonNull
+        byte[] getContentHash();
+    }
+
+    /**
+     * Callback receiving the entries of {@link #listRemoteFiles(String, RemoteFileVisitor)}.
+     */
+    @FunctionalInterface
+    interface RemoteFileVisitor {
+        /**
+         * Called for each file, in order of file name.
+         *
+         * @param info The metadata of the file
+         * @return {@code true} to continue the listing, {@code false} to stop it
+         */
+        boolean visit(@NonNull RemoteFileInfo info);
+    }
+
+    /**
+     * Listener for changes of a remote preferences group, see
+     * {@link #registerRemotePreferencesListener(String, RemotePreferencesListener)}.
+     */
+    @FunctionalInterface
+    interface RemotePreferencesListener {
+        /**
+         * Called after one or more transactions on the group have been committed.
+         *
+         * @param group       Group name
+         * @param snapshot    The snapshot of the group after the changes
+         * @param changedKeys The keys changed by the transactions, unmodifiable
+         */
+        void onRemotePreferencesChanged(@NonNull String group, @NonNull RemotePreferencesSnapshot snapshot,
+                                        @NonNull Set<String> changedKeys);
+    }
+
+    /**
+     * A log record written in a batch, see {@link #log(List)}.
+     */
+    interface LogRecord {
+        /**
+         * Gets the log priority, see {@link android.util.Log}.
+         */
+        int getPriority();
+
+        /**
+         * Gets the log tag.
+         */
+        @Nullable
+        String getTag();
+
+        /**
+         * Gets the log message.
+         */
+        @NonNull
+        String getMessage();
+
+        /**
+         * Gets the exception to log with the message.
+         */
+        @Nullable
+        Throwable getThrowable();
+    }
+
+    /**
+     * Builder for a structured log record, see {@link #logEvent(int, String)}.
+     *
+     * <p>Frameworks encode the fields straight into a compact binary record, referring to keys by
+     * numbers interned on first use, so no message string is built. Keys should therefore be
+     * constants. A builder must only be used by the thread that obtained it, and must not be used
+     * after {@link #write()}.</p>
+     */
+    interface EventBuilder {
+        /**
+         * Adds a {@code long} field to the record.
+         *
+         * @param key   The key of the field
+         * @param value The value of the field
+         * @return The builder itself for chaining
+         */
+        EventBuilder put(@NonNull String key, long value);
+
+        /**
+         * Adds a {@code double} field to the record.
+         *
+         * @param key   The key of the field
+         * @param value The value of the field
+         * @return The builder itself for chaining
+         */
+        EventBuilder put(@NonNull String key, double value);
+
+        /**
+         * Adds a {@code boolean} field to the record.
+         *
+         * @param key   The key of the field
+         * @param value The value of the field
+         * @return The builder itself for chaining
+         */
+        EventBuilder put(@NonNull String key, boolean value);
+
+        /**
+         * Adds a string field to the record. The characters are encoded directly into the record.
+         *
+         * @param key   The key of the field
+         * @param value The value of the field
+         * @return The builder itself for chaining
+         */
+        EventBuilder put(@NonNull String key, @Nullable String value);
+
+        /**
+         * Writes the record to the log.
+         */
+        void write();
     }
 
     /**
@@ -385,6 +1364,27 @@ public interface XposedInterface {
     @NonNull
     HookBuilder hook(@NonNull Executable origin);
 
+    /**
+     * Hook a method / constructor declared by the given class, resolved by its JVM descriptor.
+     *
+     * <p>The executable is resolved natively among the executables declared by the class, like
+     * {@link Class#getDeclaredMethod(String, Class[])} but without copying the method array or
+     * resolving parameter classes. This also allows precisely targeting obfuscated overloads that
+     * only differ in their return type. The class is loaded but not initialized.</p>
+     *
+     * @param classLoader The class loader to load the class from
+     * @param className   The binary name of the class, as accepted by {@link Class#forName(String)}
+     * @param methodName  The method name, or {@code <init>} for constructors
+     * @param descriptor  The JVM method descriptor, for example {@code (ILjava/lang/String;)V}
+     * @return The builder for the hook
+     * @throws ClassNotFoundException   if the class cannot be found
+     * @throws NoSuchMethodException    if the class does not declare a matching executable
+     * @throws IllegalArgumentException if the method name or descriptor is malformed
+     */
+    @NonNull
+    HookBuilder hook(@NonNull ClassLoader classLoader, @NonNull String className,
+                     @NonNull String methodName, @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException;
+
     /**
      * Hook the static initializer ({@code <clinit>}) of a class.
      *
@@ -406,6 +1406,36 @@ public interface XposedInterface {
     @NonNull
     HookBuilder hookClassInitializer(@NonNull Class<?> origin);
 
+    /**
+     * Hook many methods / constructors with the same hooker in a single framework transaction.
+     * Duplicate executables are hooked only once.
+     *
+     * @param origins The executables to be hooked
+     * @return The batch for the hooks
+     */
+    @NonNull
+    HookBatch hookAll(@NonNull Collection<? extends Executable> origins);
+
+    /**
+     * Hook a method / constructor once its declaring class is initialized, without loading the class
+     * now. The hook is installed right before the static initializer of the class runs, so calls
+     * made by the static initializer are intercepted as well.
+     *
+     * <p>Unlike {@link #hook(Executable)}, this does not force the class to be loaded or initialized,
+     * so hooks targeting classes the app never uses cost nothing.</p>
+     *
+     * @param classLoader The class loader to load the class from
+     * @param className   The binary name of the class, as accepted by {@link Class#forName(String)}
+     * @param methodName  The method name, or {@code <init>} for constructors
+     * @param descriptor  The JVM method descriptor, for example {@code (ILjava/lang/String;)V}
+     * @return The builder for the deferred hook
+     * @throws IllegalArgumentException if the method name or descriptor is malformed
+     * @see #hookClassInitializer(Class)
+     */
+    @NonNull
+    DeferredHookBuilder hookDeferred(@NonNull ClassLoader classLoader, @NonNull String className,
+                                     @NonNull String methodName, @NonNull String descriptor);
+
     /**
      * Deoptimizes a method / constructor in case hooked callee is not called because of inline.
      *
@@ -424,10 +1454,24 @@ public interface XposedInterface {
      */
     boolean deoptimize(@NonNull Executable executable);
 
+    /**
+     * Deoptimizes many methods / constructors in a single pass. This is equivalent to calling
+     * {@link #deoptimize(Executable)} for each executable, but the runtime is suspended only once.
+     *
+     * @param executables The methods / constructors to deoptimize
+     * @return A bit set where bit {@code i} is set if and only if deoptimizing the {@code i}-th
+     * executable, in the iteration order of {@code executables}, succeeded
+     * @see #deoptimize(Executable)
+     */
+    @NonNull
+    BitSet deoptimize(@NonNull Collection<? extends Executable> executables);
+
     /**
      * Get a method invoker for the given method. Invocations through invokers will bypass access
      * checks. The default type of the invoker is {@link Invoker.Type.Chain#FULL}.
      *
+     * <p>Repeated calls for the same method return the same cached instance.</p>
+     *
      * @param method The method to get the invoker for
      * @return The method invoker
      */
@@ -438,6 +1482,8 @@ public interface XposedInterface {
      * Get a constructor invoker for the given constructor. Invocations through invokers will bypass
      * access checks. The default type of the invoker is {@link Invoker.Type.Chain#FULL}.
      *
+     * <p>Repeated calls for the same constructor return the same cached instance.</p>
+     *
      * @param constructor The constructor to get the invoker for
      * @param <T>         The type of the constructor
      * @return The constructor invoker
@@ -446,7 +1492,44 @@ public interface XposedInterface {
     <T> CtorInvoker<T> getInvoker(@NonNull Constructor<T> constructor);
 
     /**
-     * Writes a message to the Xposed log.
+     * Get a method invoker for a method declared by the given class, resolved by its JVM descriptor
+     * the same way as {@link #hook(ClassLoader, String, String, String)}.
+     *
+     * @param classLoader The class loader to load the class from
+     * @param className   The binary name of the class, as accepted by {@link Class#forName(String)}
+     * @param methodName  The method name
+     * @param descriptor  The JVM method descriptor, for example {@code (ILjava/lang/String;)V}
+     * @return The method invoker
+     * @throws ClassNotFoundException   if the class cannot be found
+     * @throws NoSuchMethodException    if the class does not declare a matching method
+     * @throws IllegalArgumentException if the method name or descriptor is malformed
+     * @see #getInvoker(Method)
+     */
+    @NonNull
+    Invoker<?, Method> getInvoker(@NonNull ClassLoader classLoader, @NonNull String className,
+                                  @NonNull String methodName, @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException;
+
+    /**
+     * Get a constructor invoker for a constructor declared by the given class, resolved by its JVM
+     * descriptor the same way as {@link #hook(ClassLoader, String, String, String)}.
+     *
+     * @param classLoader The class loader to load the class from
+     * @param className   The binary name of the class, as accepted by {@link Class#forName(String)}
+     * @param descriptor  The JVM method descriptor of the constructor, for example {@code (I)V}
+     * @param <T>         The type of the constructor
+     * @return The constructor invoker
+     * @throws ClassNotFoundException   if the class cannot be found
+     * @throws NoSuchMethodException    if the class does not declare a matching constructor
+     * @throws IllegalArgumentException if the descriptor is malformed
+     * @see #getInvoker(Constructor)
+     */
+    @NonNull
+    <T> CtorInvoker<T> getInvoker(@NonNull ClassLoader classLoader, @NonNull String className,
+                                  @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException;
+
+    /**
+     * Writes a message to the Xposed log. Records are rate limited for each tag and priority as
+     * configured by {@code logRateLimit} in {@code module.prop}.
      *
      * @param priority The log priority, see {@link android.util.Log}
      * @param tag      The log tag
@@ -455,7 +1538,8 @@ public interface XposedInterface {
     void log(int priority, @Nullable String tag, @NonNull String msg);
 
     /**
-     * Writes a message to the Xposed log.
+     * Writes a message to the Xposed log. Records are rate limited like
+     * {@link #log(int, String, String)}.
      *
      * @param priority The log priority, see {@link android.util.Log}
      * @param tag      The log tag
@@ -464,6 +1548,100 @@ public interface XposedInterface {
      */
     void log(int priority, @Nullable String tag, @NonNull String msg, @Nullable Throwable tr);
 
+    /**
+     * Writes a batch of messages to the Xposed log, in order. Records are rate limited like
+     * {@link #log(int, String, String)}. Frameworks write the whole batch in a single transaction to
+     * the log daemon, so the cost of a log write is paid once per batch rather than once per record.
+     * Callers may reuse the list once the call returns.
+     *
+     * @param records The records to write
+     */
+    default void log(@NonNull List<? extends LogRecord> records) {
+        for (var record : records) {
+            log(record.getPriority(), record.getTag(), record.getMessage(), record.getThrowable());
+        }
+    }
+
+    /**
+     * Checks whether a message with the given priority and tag would be written to the Xposed log.
+     * Modules can use this to skip building expensive log messages.
+     *
+     * @param priority The log priority, see {@link android.util.Log}
+     * @param tag      The log tag
+     * @return {@code true} if the message would be written
+     */
+    boolean isLoggable(int priority, @Nullable String tag);
+
+    /**
+     * Starts a structured log record for high volume tracing. Instead of formatted text, the record
+     * holds typed key-value fields in a binary encoding that framework tooling decodes later:
+     * <pre>{@code
+     * logEvent(Log.DEBUG, TAG)
+     *     .put("uid", uid)
+     *     .put("package", packageName)
+     *     .write();
+     * }</pre>
+     *
+     * <p>Frameworks reuse builders, so building a record does not allocate in the common case. If
+     * {@link #isLoggable(int, String)} returns {@code false}, the returned builder discards the
+     * record. Structured records are not subject to log rate limiting.</p>
+     *
+     * @param priority The log priority, see {@link android.util.Log}
+     * @param tag      The log tag
+     * @return The builder of the record
+     */
+    @NonNull
+    EventBuilder logEvent(int priority, @Nullable String tag);
+
+    /**
+     * Writes a formatted message to the Xposed log. The message is only formatted, as if by
+     * {@link String#format(String, Object...)}, if {@link #isLoggable(int, String)} returns {@code true}.
+     * A {@link Throwable} among the arguments is formatted like any other argument; use
+     * {@link #log(int, String, Supplier, Throwable)} to log its stack trace.
+     *
+     * <p>This is not an overload of {@code log}, as it would make calls passing a {@code null}
+     * exception to {@link #log(int, String, String, Throwable)} ambiguous.</p>
+     *
+     * @param priority The log priority, see {@link android.util.Log}
+     * @param tag      The log tag
+     * @param format   The format string of the log message
+     * @param args     The arguments referenced by the format string
+     */
+    default void logf(int priority, @Nullable String tag, @NonNull String format, Object... args) {
+        if (isLoggable(priority, tag)) {
+            log(priority, tag, String.format(format, args));
+        }
+    }
+
+    /**
+     * Writes a message to the Xposed log. The supplier is only called if
+     * {@link #isLoggable(int, String)} returns {@code true}.
+     *
+     * @param priority    The log priority, see {@link android.util.Log}
+     * @param tag         The log tag
+     * @param msgSupplier The supplier of the log message
+     */
+    default void log(int priority, @Nullable String tag, @NonNull Supplier<String> msgSupplier) {
+        if (isLoggable(priority, tag)) {
+            log(priority, tag, msgSupplier.get());
+        }
+    }
+
+    /**
+     * Writes a message to the Xposed log. The supplier is only called if
+     * {@link #isLoggable(int, String)} returns {@code true}.
+     *
+     * @param priority    The log priority, see {@link android.util.Log}
+     * @param tag         The log tag
+     * @param msgSupplier The supplier of the log message
+     * @param tr          An exception to log
+     */
+    default void log(int priority, @Nullable String tag, @NonNull Supplier<String> msgSupplier, @Nullable Throwable tr) {
+        if (isLoggable(priority, tag)) {
+            log(priority, tag, msgSupplier.get(), tr);
+        }
+    }
+
     /**
      * Gets the application info of the module.
      */
@@ -480,6 +1658,122 @@ public interface XposedInterface {
     @NonNull
     SharedPreferences getRemotePreferences(@NonNull String group);
 
+    /**
+     * Gets the latest snapshot of a remote preferences group. Unlike {@link #getRemotePreferences(String)},
+     * reads from the snapshot are guaranteed to be local, lock-free and allocation-free, which makes it
+     * suitable for hookers on hot paths.
+     *
+     * <p>A snapshot never changes. Frameworks replace the snapshot of a group atomically when the group
+     * changes, and this method returns the latest one without IPC; call it again to observe updates.</p>
+     *
+     * @param group Group name
+     * @return The latest snapshot of the group, empty if the group does not exist
+     * @throws UnsupportedOperationException If the framework is embedded
+     */
+    @NonNull
+    RemotePreferencesSnapshot getRemotePreferencesSnapshot(@NonNull String group);
+
+    /**
+     * Gets a handle of a key in a remote preferences group. Reads through the handle resolve the key
+     * to a slot of the latest snapshot once per snapshot, instead of hashing and comparing the key
+     * string on every read like {@link RemotePreferencesSnapshot#getString(String, String)} does.
+     *
+     * <p>The default implementation looks the group up once to check that remote preferences are
+     * available, then again on every read; frameworks should override it to read the latest snapshot
+     * directly.</p>
+     *
+     * @param group    Group name
+     * @param key      The key
+     * @param type     The boxed type of the value, such as {@code String.class} or {@code Long.class}
+     * @param defValue The value to return if the key is absent
+     * @param <T>      The type of the value
+     * @return The handle of the key
+     * @throws IllegalArgumentException      If {@code type} is a primitive type
+     * @throws UnsupportedOperationException If the framework is embedded
+     * @see #getIntKey(String, String, int)
+     * @see #getBooleanKey(String, String, boolean)
+     */
+    @NonNull
+    default <T> PreferenceKey<T> getPreferenceKey(@NonNull String group, @NonNull String key,
+                                                  @NonNull Class<T> type, @Nullable T defValue) {
+        getRemotePreferencesSnapshot(group);
+        return PreferenceKey.of(() -> getRemotePreferencesSnapshot(group), key, type, defValue);
+    }
+
+    /**
+     * Gets a handle of an {@code int} key in a remote preferences group, which reads the value
+     * without boxing. See {@link #getPreferenceKey(String, String, Class, Object)}.
+     *
+     * @param group    Group name
+     * @param key      The key
+     * @param defValue The value to return if the key is absent
+     * @return The handle of the key
+     * @throws UnsupportedOperationException If the framework is embedded
+     */
+    @NonNull
+    default PreferenceKey.IntKey getIntKey(@NonNull String group, @NonNull String key, int defValue) {
+        getRemotePreferencesSnapshot(group);
+        return PreferenceKey.ofInt(() -> getRemotePreferencesSnapshot(group), key, defValue);
+    }
+
+    /**
+     * Gets a handle of a {@code boolean} key in a remote preferences group, which reads the value
+     * without boxing. See {@link #getPreferenceKey(String, String, Class, Object)}.
+     *
+     * @param group    Group name
+     * @param key      The key
+     * @param defValue The value to return if the key is absent
+     * @return The handle of the key
+     * @throws UnsupportedOperationException If the framework is embedded
+     */
+    @NonNull
+    default PreferenceKey.BooleanKey getBooleanKey(@NonNull String group, @NonNull String key, boolean defValue) {
+        getRemotePreferencesSnapshot(group);
+        return PreferenceKey.ofBoolean(() -> getRemotePreferencesSnapshot(group), key, defValue);
+    }
+
+    /**
+     * Registers a listener receiving changes of a remote preferences group in batches. Unlike an
+     * {@link SharedPreferences.OnSharedPreferenceChangeListener}, which is called once per changed key,
+     * the listener is called once per committed transaction with all keys it changed. Transactions
+     * committed before the listener gets to run are coalesced into a single call, so the work done by
+     * the listener scales with bursts of changes rather than keys.
+     *
+     * <p>The listener is called on a framework thread, never concurrently with itself. Registering the
+     * same listener twice has no effect.</p>
+     *
+     * @param group    Group name
+     * @param listener The listener
+     * @throws UnsupportedOperationException If the framework is embedded
+     */
+    void registerRemotePreferencesListener(@NonNull String group, @NonNull RemotePreferencesListener listener);
+
+    /**
+     * Unregisters a listener registered by
+     * {@link #registerRemotePreferencesListener(String, RemotePreferencesListener)}. Changes already
+     * being delivered may still reach the listener.
+     *
+     * @param group    Group name
+     * @param listener The listener
+     * @throws UnsupportedOperationException If the framework is embedded
+     */
+    void unregisterRemotePreferencesListener(@NonNull String group, @NonNull RemotePreferencesListener listener);
+
+    /**
+     * Gets the generation of the module's shared data directory. Frameworks increase it whenever the
+     * module changes a file in the directory, so callers can keep listings, descriptors and content of
+     * remote files while the generation stays the same.
+     *
+     * <p>Frameworks must answer without IPC, for example from memory shared with the module process,
+     * since the generation is checked on every access to a cache.</p>
+     *
+     * @return The generation, or a negative value if the framework cannot track changes, in which case
+     * remote files must not be cached
+     * @throws UnsupportedOperationException If the framework is embedded
+     * @see XposedInterfaceWrapper#setRemoteFileCache(int)
+     */
+    long getRemoteFilesGeneration();
+
     /**
      * List all files in the module's shared data directory.
      *
@@ -489,6 +1783,23 @@ public interface XposedInterface {
     @NonNull
     String[] listRemoteFiles();
 
+    /**
+     * Lists the files in the module's shared data directory with their metadata, so modules can find
+     * changed files without opening each of them. Entries are streamed in order of file name
+     * (compared by {@link String#compareTo(String)}); frameworks fetch them in pages, so stopping early
+     * saves the rest of the work. A stopped listing can be resumed by passing the name of the last
+     * visited file as {@code startAfter}.
+     *
+     * <p>The listing is not a snapshot: files changed while it is running may or may not be visited
+     * with their new metadata. Compare {@link #getRemoteFilesGeneration()} before and after the
+     * listing to detect this.</p>
+     *
+     * @param startAfter The name to start after, or {@code null} to start from the first file
+     * @param visitor    The callback receiving the entries
+     * @throws UnsupportedOperationException If the framework is embedded
+     */
+    void listRemoteFiles(@Nullable String startAfter, @NonNull RemoteFileVisitor visitor);
+
     /**
      * Open a file in the module's shared data directory. The file is opened in read-only mode.
      *
@@ -499,4 +1810,34 @@ public interface XposedInterface {
      */
     @NonNull
     ParcelFileDescriptor openRemoteFile(@NonNull String name) throws FileNotFoundException;
+
+    /**
+     * Maps a file in the module's shared data directory into memory. The mapping is read-only and
+     * backed by the page cache, so the file content is shared by all processes mapping it instead of
+     * being copied to the Java heap of each process.
+     *
+     * <p>The mapping stays valid after the file descriptor is closed and is released when the buffer
+     * is garbage collected. Module apps replace remote files atomically instead of writing them in
+     * place, so a mapping shows the file as it was when it was mapped. Callers should map the file
+     * again after {@link #getRemoteFilesGeneration()} advances to see the new content.</p>
+     *
+     * @param name File name, must not contain path separators and . or ..
+     * @return The read-only buffer covering the whole file
+     * @throws FileNotFoundException         If the file does not exist or the path is forbidden
+     * @throws IOException                   If the file cannot be mapped, for example if it is larger
+     *                                       than 2 GiB
+     * @throws UnsupportedOperationException If the framework is embedded
+     * @see #openRemoteFile(String)
+     */
+    @NonNull
+    default MappedByteBuffer mapRemoteFile(@NonNull String name) throws IOException {
+        try (var in = new ParcelFileDescriptor.AutoCloseInputStream(openRemoteFile(name))) {
+            var channel = in.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + name);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
 }
@@ -8,16 +8,67 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.MappedByteBuffer;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Wrapper of {@link XposedInterface} used by modules to shield framework implementation details.
  */
 public class XposedInterfaceWrapper implements XposedInterface {
 
-    private volatile XposedInterface mBase;
+    /**
+     * What to do when the buffer of asynchronous logging is full.
+     *
+     * @see #setAsyncLogging(int, LogOverflowPolicy)
+     */
+    public enum LogOverflowPolicy {
+        /**
+         * Discards the record being logged.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Discards the oldest buffered record to make room for the record being logged.
+         */
+        DROP_OLDEST,
+    }
+
+    /**
+     * Placeholder base used before the framework is attached. Every call on it throws, which spares
+     * the delegating methods an explicit attach check.
+     */
+    private static final XposedInterface DETACHED = (XposedInterface) Proxy.newProxyInstance(
+            XposedInterface.class.getClassLoader(), new Class<?>[]{XposedInterface.class},
+            (proxy, method, args) -> {
+                throw new IllegalStateException("Framework not attached");
+            });
+
+    /**
+     * Not volatile on purpose: the framework attaches before running any module code and publishes
+     * the module to other threads through its own synchronization, so hot paths only pay a plain read.
+     */
+    private XposedInterface mBase = DETACHED;
+
+    /**
+     * Non-null once asynchronous logging is enabled. Unlike {@link #mBase}, this is set while module
+     * code may already run on other threads, so it is volatile; the read costs nothing next to a log
+     * write.
+     */
+    private volatile AsyncLogger mLogger;
+
+    /**
+     * Non-null once the remote file cache is enabled. Volatile for the same reason as {@link #mLogger};
+     * the read costs nothing next to a remote file access.
+     */
+    private volatile RemoteFileCache mFileCache;
 
     /**
      * Attaches the framework interface to the module. Modules should never call this method.
@@ -25,122 +76,319 @@ public class XposedInterfaceWrapper implements XposedInterface {
      * @param base The framework interface
      */
     @SuppressWarnings("unused")
-    public final void attachFramework(@NonNull XposedInterface base) {
-        if (mBase != null) {
+    public final synchronized void attachFramework(@NonNull XposedInterface base) {
+        if (mBase != DETACHED) {
             throw new IllegalStateException("Framework already attached");
         }
         mBase = base;
     }
 
-    private void ensureAttached() {
-        if (mBase == null) {
+    /**
+     * Switches {@link #log(int, String, String, Throwable)} to asynchronous mode. Log records are put
+     * into a bounded lock-free ring buffer and written to the framework in batches through
+     * {@link #log(List)} by a background thread, so logging no longer blocks the calling thread on the
+     * framework log write.
+     *
+     * <p>When the buffer is full, records are dropped according to {@code policy} and counted in
+     * {@link #getDroppedLogCount()}. The background thread reports the number of dropped records in
+     * the log itself. Records still buffered when the process dies are lost.</p>
+     *
+     * <p>This method should be called in {@link XposedModuleInterface#onModuleLoaded} before the module
+     * starts logging from other threads. Asynchronous logging cannot be disabled once enabled.</p>
+     *
+     * @param capacity The number of records the buffer can hold, rounded up to a power of two
+     * @param policy   What to do when the buffer is full
+     * @throws IllegalArgumentException if capacity is not positive or exceeds 2<sup>30</sup>
+     * @throws IllegalStateException    if the framework is not attached or asynchronous logging is
+     *                                  already enabled
+     */
+    public final synchronized void setAsyncLogging(int capacity, @NonNull LogOverflowPolicy policy) {
+        if (mBase == DETACHED) {
             throw new IllegalStateException("Framework not attached");
         }
+        if (mLogger != null) {
+            throw new IllegalStateException("Asynchronous logging already enabled");
+        }
+        mLogger = new AsyncLogger(mBase, capacity, policy);
+    }
+
+    /**
+     * Enables the per-process cache of remote files. {@link #listRemoteFiles()},
+     * {@link #openRemoteFile(String)} and {@link #mapRemoteFile(String)} are then served from the
+     * cache, and only call the framework when the cache misses or
+     * {@link #getRemoteFilesGeneration()} reports that the module changed its files.
+     *
+     * <p>The cache keeps a file descriptor open for each of the {@code maxOpenFiles} most recently
+     * opened files and hands out duplicates of it, so callers still own and must close the descriptors
+     * they get. Frameworks that cannot track changes return a negative generation, which turns the
+     * cache off.</p>
+     *
+     * <p>This method should be called in {@link XposedModuleInterface#onModuleLoaded} before the module
+     * accesses remote files from other threads. The cache cannot be disabled once enabled.</p>
+     *
+     * @param maxOpenFiles The maximum number of file descriptors kept open by the cache
+     * @throws IllegalArgumentException if maxOpenFiles is not positive
+     * @throws IllegalStateException    if the framework is not attached or the cache is already enabled
+     */
+    public final synchronized void setRemoteFileCache(int maxOpenFiles) {
+        if (mBase == DETACHED) {
+            throw new IllegalStateException("Framework not attached");
+        }
+        if (mFileCache != null) {
+            throw new IllegalStateException("Remote file cache already enabled");
+        }
+        mFileCache = new RemoteFileCache(mBase, maxOpenFiles);
+    }
+
+    /**
+     * Gets the number of log records dropped because the buffer of asynchronous logging was full.
+     *
+     * @return The number of dropped records, {@code 0} if asynchronous logging is not enabled
+     * @see #setAsyncLogging(int, LogOverflowPolicy)
+     */
+    public final long getDroppedLogCount() {
+        var logger = mLogger;
+        return logger == null ? 0 : logger.getDroppedCount();
     }
 
     @Override
     public final int getApiVersion() {
-        ensureAttached();
+        if (mBase == DETACHED) {
+            throw new IllegalStateException("Framework not attached");
+        }
         return XposedInterface.super.getApiVersion();
     }
 
     @NonNull
     @Override
     public final String getFrameworkName() {
-        ensureAttached();
         return mBase.getFrameworkName();
     }
 
     @NonNull
     @Override
     public final String getFrameworkVersion() {
-        ensureAttached();
         return mBase.getFrameworkVersion();
     }
 
     @Override
     public final long getFrameworkVersionCode() {
-        ensureAttached();
         return mBase.getFrameworkVersionCode();
     }
 
     @Override
     public final long getFrameworkProperties() {
-        ensureAttached();
         return mBase.getFrameworkProperties();
     }
 
     @NonNull
     @Override
     public final HookBuilder hook(@NonNull Executable origin) {
-        ensureAttached();
         return mBase.hook(origin);
     }
 
+    @NonNull
+    @Override
+    public final HookBuilder hook(@NonNull ClassLoader classLoader, @NonNull String className,
+                                  @NonNull String methodName, @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        return mBase.hook(classLoader, className, methodName, descriptor);
+    }
+
     @NonNull
     @Override
     public final HookBuilder hookClassInitializer(@NonNull Class<?> origin) {
-        ensureAttached();
         return mBase.hookClassInitializer(origin);
     }
 
+    @NonNull
+    @Override
+    public final HookBatch hookAll(@NonNull Collection<? extends Executable> origins) {
+        return mBase.hookAll(origins);
+    }
+
+    @NonNull
+    @Override
+    public final DeferredHookBuilder hookDeferred(@NonNull ClassLoader classLoader, @NonNull String className,
+                                                  @NonNull String methodName, @NonNull String descriptor) {
+        return mBase.hookDeferred(classLoader, className, methodName, descriptor);
+    }
+
     @Override
     public final boolean deoptimize(@NonNull Executable executable) {
-        ensureAttached();
         return mBase.deoptimize(executable);
     }
 
+    @NonNull
+    @Override
+    public final BitSet deoptimize(@NonNull Collection<? extends Executable> executables) {
+        return mBase.deoptimize(executables);
+    }
+
     @NonNull
     @Override
     public final Invoker<?, Method> getInvoker(@NonNull Method method) {
-        ensureAttached();
         return mBase.getInvoker(method);
     }
 
     @NonNull
     @Override
     public final <T> CtorInvoker<T> getInvoker(@NonNull Constructor<T> constructor) {
-        ensureAttached();
         return mBase.getInvoker(constructor);
     }
 
+    @NonNull
+    @Override
+    public final Invoker<?, Method> getInvoker(@NonNull ClassLoader classLoader, @NonNull String className,
+                                               @NonNull String methodName, @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        return mBase.getInvoker(classLoader, className, methodName, descriptor);
+    }
+
+    @NonNull
+    @Override
+    public final <T> CtorInvoker<T> getInvoker(@NonNull ClassLoader classLoader, @NonNull String className,
+                                               @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        return mBase.getInvoker(classLoader, className, descriptor);
+    }
+
     @Override
     public final void log(int priority, @Nullable String tag, @NonNull String msg) {
-        ensureAttached();
-        mBase.log(priority, tag, msg);
+        var logger = mLogger;
+        if (logger == null) {
+            mBase.log(priority, tag, msg);
+        } else {
+            logger.log(priority, tag, msg, null);
+        }
     }
 
     @Override
     public final void log(int priority, @Nullable String tag, @NonNull String msg, @Nullable Throwable tr) {
-        ensureAttached();
-        mBase.log(priority, tag, msg, tr);
+        var logger = mLogger;
+        if (logger == null) {
+            mBase.log(priority, tag, msg, tr);
+        } else {
+            logger.log(priority, tag, msg, tr);
+        }
+    }
+
+    @Override
+    public final void log(@NonNull List<? extends LogRecord> records) {
+        var logger = mLogger;
+        if (logger == null) {
+            mBase.log(records);
+        } else {
+            for (var record : records) {
+                logger.log(record.getPriority(), record.getTag(), record.getMessage(), record.getThrowable());
+            }
+        }
+    }
+
+    @Override
+    public final boolean isLoggable(int priority, @Nullable String tag) {
+        return mBase.isLoggable(priority, tag);
+    }
+
+    @NonNull
+    @Override
+    public final EventBuilder logEvent(int priority, @Nullable String tag) {
+        return mBase.logEvent(priority, tag);
+    }
+
+    @Override
+    public final void logf(int priority, @Nullable String tag, @NonNull String format, Object... args) {
+        if (mBase.isLoggable(priority, tag)) {
+            log(priority, tag, String.format(format, args));
+        }
+    }
+
+    @Override
+    public final void log(int priority, @Nullable String tag, @NonNull Supplier<String> msgSupplier) {
+        if (mBase.isLoggable(priority, tag)) {
+            log(priority, tag, msgSupplier.get());
+        }
+    }
+
+    @Override
+    public final void log(int priority, @Nullable String tag, @NonNull Supplier<String> msgSupplier, @Nullable Throwable tr) {
+        if (mBase.isLoggable(priority, tag)) {
+            log(priority, tag, msgSupplier.get(), tr);
+        }
     }
 
     @NonNull
     @Override
     public final SharedPreferences getRemotePreferences(@NonNull String name) {
-        ensureAttached();
         return mBase.getRemotePreferences(name);
     }
 
+    @NonNull
+    @Override
+    public final RemotePreferencesSnapshot getRemotePreferencesSnapshot(@NonNull String group) {
+        return mBase.getRemotePreferencesSnapshot(group);
+    }
+
+    @NonNull
+    @Override
+    public final <T> PreferenceKey<T> getPreferenceKey(@NonNull String group, @NonNull String key,
+                                                       @NonNull Class<T> type, @Nullable T defValue) {
+        return mBase.getPreferenceKey(group, key, type, defValue);
+    }
+
+    @NonNull
+    @Override
+    public final PreferenceKey.IntKey getIntKey(@NonNull String group, @NonNull String key, int defValue) {
+        return mBase.getIntKey(group, key, defValue);
+    }
+
+    @NonNull
+    @Override
+    public final PreferenceKey.BooleanKey getBooleanKey(@NonNull String group, @NonNull String key, boolean defValue) {
+        return mBase.getBooleanKey(group, key, defValue);
+    }
+
+    @Override
+    public final void registerRemotePreferencesListener(@NonNull String group, @NonNull RemotePreferencesListener listener) {
+        mBase.registerRemotePreferencesListener(group, listener);
+    }
+
+    @Override
+    public final void unregisterRemotePreferencesListener(@NonNull String group, @NonNull RemotePreferencesListener listener) {
+        mBase.unregisterRemotePreferencesListener(group, listener);
+    }
+
     @NonNull
     @Override
     public final ApplicationInfo getModuleApplicationInfo() {
-        ensureAttached();
         return mBase.getModuleApplicationInfo();
     }
 
+    @Override
+    public final long getRemoteFilesGeneration() {
+        return mBase.getRemoteFilesGeneration();
+    }
+
     @NonNull
     @Override
     public final String[] listRemoteFiles() {
-        ensureAttached();
-        return mBase.listRemoteFiles();
+        var cache = mFileCache;
+        return cache == null ? mBase.listRemoteFiles() : cache.listRemoteFiles();
+    }
+
+    @Override
+    public final void listRemoteFiles(@Nullable String startAfter, @NonNull RemoteFileVisitor visitor) {
+        mBase.listRemoteFiles(startAfter, visitor);
     }
 
     @NonNull
     @Override
     public final ParcelFileDescriptor openRemoteFile(@NonNull String name) throws FileNotFoundException {
-        ensureAttached();
-        return mBase.openRemoteFile(name);
+        var cache = mFileCache;
+        return cache == null ? mBase.openRemoteFile(name) : cache.openRemoteFile(name);
+    }
+
+    @NonNull
+    @Override
+    public final MappedByteBuffer mapRemoteFile(@NonNull String name) throws IOException {
+        var cache = mFileCache;
+        return cache == null ? mBase.mapRemoteFile(name) : cache.mapRemoteFile(name);
     }
 }
@@ -36,6 +36,16 @@
  *     apply the module on apps outside the scope list</li>
  *     <li>{@code exceptionMode} (string) [protective|passthrough] - Default to protective, see
  *     {@link io.github.libxposed.api.XposedInterface.ExceptionMode}</li>
+ *     <li>{@code logRateLimit} (int) – maximum number of log records per second for each tag and
+ *     priority, {@code 0} to disable rate limiting. Records over the limit are dropped and reported
+ *     as "N messages suppressed" summaries. Defaults to 100</li>
+ *     <li>{@code logRateBurst} (int) – number of log records allowed at once after a quiet period.
+ *     Defaults to 100</li>
+ *     <li>{@code sharedRemotePreferences} (boolean) – publish remote preferences groups in read-only
+ *     shared memory in a compact binary layout. Reads through
+ *     {@link io.github.libxposed.api.XposedInterface#getRemotePreferences(String)} decode directly
+ *     from it, so processes share one copy of each group and see updates without reloading it.
+ *     Defaults to false</li>
  * </ul>
  *
  * <h2>Scope</h2>
@@ -0,0 +1,45 @@
+plugins {
+    alias(libs.plugins.agp.lib)
+}
+
+android {
+    namespace = "io.github.libxposed.benchmark"
+    compileSdk = 36
+    buildToolsVersion = "36.1.0"
+    androidResources.enable = false
+    enableKotlin = false
+
+    defaultConfig {
+        minSdk = 26
+    }
+
+    buildFeatures {
+        buildConfig = false
+    }
+
+    compileOptions {
+        targetCompatibility = JavaVersion.VERSION_17
+        sourceCompatibility = JavaVersion.VERSION_17
+    }
+
+    testOptions {
+        unitTests.isReturnDefaultValues = true
+    }
+}
+
+dependencies {
+    testImplementation(project(":reference"))
+    testCompileOnly(libs.annotation)
+    testImplementation(libs.junit)
+    testImplementation(libs.jmh.core)
+    testAnnotationProcessor(libs.jmh.generator)
+}
+
+// Benchmarks run on the host JVM as unit tests and take minutes, so they are skipped unless
+// requested explicitly: ./gradlew :benchmark:testReleaseUnitTest -Pjmh[=<regex>]
+tasks.withType<Test>().configureEach {
+    val include = providers.gradleProperty("jmh")
+    onlyIf { include.isPresent }
+    systemProperty("jmh.include", include.getOrElse(""))
+    outputs.upToDateWhen { false }
+}
@@ -0,0 +1,139 @@
+package io.github.libxposed.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.reference.ReferenceFramework;
+
+/**
+ * Cost of reading and rewriting primitive versus object arguments, and of passing primitive results
+ * through generic versus primitive specialized hookers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentBenchmark {
+    private final Target target = new Target();
+    private int a = 1;
+    private int b = 2;
+    private String s = "a";
+    private String t = "b";
+
+    private MethodHandle intFromList;
+    private MethodHandle intFromAccessor;
+    private MethodHandle objectFromList;
+    private MethodHandle objectFromAccessor;
+    private MethodHandle intProceedArgs;
+    private MethodHandle intSetArg;
+    private MethodHandle objectProceedArgs;
+    private MethodHandle objectSetArg;
+    private MethodHandle genericResult;
+    private MethodHandle typedResult;
+
+    private static MethodHandle hook(Method method, Function<XposedInterface.HookBuilder, XposedInterface.HookHandle> install) {
+        var framework = new ReferenceFramework();
+        install.apply(framework.hook(method));
+        return framework.getInvoker(method).getMethodHandle();
+    }
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        var add = Target.class.getMethod("add", int.class, int.class);
+        var concat = Target.class.getMethod("concat", String.class, String.class);
+        intFromList = hook(add, builder -> builder.intercept(
+                chain -> (int) chain.getArgs().get(0) >= 0 ? chain.proceed() : null));
+        intFromAccessor = hook(add, builder -> builder.intercept(
+                chain -> chain.getIntArg(0) >= 0 ? chain.proceed() : null));
+        objectFromList = hook(concat, builder -> builder.intercept(
+                chain -> chain.getArgs().get(0) != null ? chain.proceed() : null));
+        objectFromAccessor = hook(concat, builder -> builder.intercept(
+                chain -> chain.getArg(0) != null ? chain.proceed() : null));
+        intProceedArgs = hook(add, builder -> builder.intercept(chain -> {
+            var args = chain.getArgs().toArray();
+            args[0] = (int) args[0] + 1;
+            return chain.proceed(args);
+        }));
+        intSetArg = hook(add, builder -> builder.intercept(chain -> {
+            chain.setIntArg(0, chain.getIntArg(0) + 1);
+            return chain.proceed();
+        }));
+        objectProceedArgs = hook(concat, builder -> builder.intercept(chain -> {
+            var args = chain.getArgs().toArray();
+            args[0] = t;
+            return chain.proceed(args);
+        }));
+        objectSetArg = hook(concat, builder -> builder.intercept(chain -> {
+            chain.setArg(0, t);
+            return chain.proceed();
+        }));
+        genericResult = hook(add, builder -> builder.intercept(chain -> (int) chain.proceed() + 1));
+        typedResult = hook(add, builder -> builder.interceptInt(chain -> chain.proceedAsInt() + 1));
+    }
+
+    @Benchmark
+    public int intFromList() throws Throwable {
+        return (int) intFromList.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public int intFromAccessor() throws Throwable {
+        return (int) intFromAccessor.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public String objectFromList() throws Throwable {
+        return (String) objectFromList.invokeExact(target, s, t);
+    }
+
+    @Benchmark
+    public String objectFromAccessor() throws Throwable {
+        return (String) objectFromAccessor.invokeExact(target, s, t);
+    }
+
+    @Benchmark
+    public int intProceedArgs() throws Throwable {
+        return (int) intProceedArgs.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public int intSetArg() throws Throwable {
+        return (int) intSetArg.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public String objectProceedArgs() throws Throwable {
+        return (String) objectProceedArgs.invokeExact(target, s, t);
+    }
+
+    @Benchmark
+    public String objectSetArg() throws Throwable {
+        return (String) objectSetArg.invokeExact(target, s, t);
+    }
+
+    @Benchmark
+    public int genericResult() throws Throwable {
+        return (int) genericResult.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public int typedResult() throws Throwable {
+        return (int) typedResult.invokeExact(target, a, b);
+    }
+}
@@ -0,0 +1,23 @@
+package io.github.libxposed.benchmark;
+
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point running the JMH benchmarks from the unit test task, see {@code build.gradle.kts}. The
+ * {@code jmh.include} system property selects benchmarks by regular expression.
+ */
+public class BenchmarkTest {
+    @Test
+    public void run() throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", ""))
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.libxposed.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.reference.ReferenceFramework;
+
+/**
+ * Cost of dispatching through chains of pass-through hookers, forwarding the arguments with
+ * {@code proceed()} versus copying them into {@code proceed(Object[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainDepthBenchmark {
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int depth;
+
+    private final Target target = new Target();
+    private int a = 1;
+    private int b = 2;
+    private MethodHandle proceed;
+    private MethodHandle proceedArgs;
+
+    private MethodHandle hook(XposedInterface.Hooker hooker) throws NoSuchMethodException {
+        var framework = new ReferenceFramework();
+        Method add = Target.class.getMethod("add", int.class, int.class);
+        for (int i = 0; i < depth; i++) {
+            framework.hook(add).intercept(hooker);
+        }
+        return framework.getInvoker(add).getMethodHandle();
+    }
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        proceed = hook(XposedInterface.Chain::proceed);
+        proceedArgs = hook(chain -> chain.proceed(chain.getArgs().toArray()));
+    }
+
+    @Benchmark
+    public int proceed() throws Throwable {
+        return (int) proceed.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public int proceedArgs() throws Throwable {
+        return (int) proceedArgs.invokeExact(target, a, b);
+    }
+}
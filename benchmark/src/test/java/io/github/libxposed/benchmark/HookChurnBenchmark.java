@@ -0,0 +1,64 @@
+package io.github.libxposed.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.reference.ReferenceFramework;
+
+/**
+ * Cost of dispatching through a hooked method while another thread keeps hooking and unhooking it.
+ * Compare {@code dispatch} with {@code ChainDepthBenchmark.proceed} to see the impact of the churn.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HookChurnBenchmark {
+    private final Target target = new Target();
+    private int a = 1;
+    private int b = 2;
+    private ReferenceFramework framework;
+    private Method add;
+    private MethodHandle handle;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        framework = new ReferenceFramework();
+        add = Target.class.getMethod("add", int.class, int.class);
+        for (int i = 0; i < 4; i++) {
+            framework.hook(add).intercept(XposedInterface.Chain::proceed);
+        }
+        handle = framework.getInvoker(add).getMethodHandle();
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(3)
+    public int dispatch() throws Throwable {
+        return (int) handle.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    @Group("churn")
+    @GroupThreads(1)
+    public void hookAndUnhook() {
+        framework.hook(add).intercept(XposedInterface.Chain::proceed).unhook();
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.libxposed.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.reference.ReferenceFramework;
+
+/**
+ * Cost of calling a method through {@link XposedInterface.Invoker} of type {@code ORIGIN} and
+ * {@code Chain}, via {@code invoke} and via constant method handles, against a direct call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvokerBenchmark {
+    private static final XposedInterface.Invoker<?, Method> ORIGIN;
+    private static final XposedInterface.Invoker<?, Method> CHAIN;
+    private static final MethodHandle ORIGIN_HANDLE;
+    private static final MethodHandle CHAIN_HANDLE;
+
+    static {
+        var framework = new ReferenceFramework();
+        Method add;
+        try {
+            add = Target.class.getMethod("add", int.class, int.class);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        framework.hook(add).intercept(XposedInterface.Chain::proceed);
+        CHAIN = framework.getInvoker(add);
+        ORIGIN = CHAIN.setType(XposedInterface.Invoker.Type.ORIGIN);
+        CHAIN_HANDLE = CHAIN.getMethodHandle();
+        ORIGIN_HANDLE = ORIGIN.getMethodHandle();
+    }
+
+    private final Target target = new Target();
+    private int a = 1;
+    private int b = 2;
+
+    @Benchmark
+    public int direct() {
+        return target.add(a, b);
+    }
+
+    @Benchmark
+    public Object originInvoke() throws Exception {
+        return ORIGIN.invoke(target, a, b);
+    }
+
+    @Benchmark
+    public Object chainInvoke() throws Exception {
+        return CHAIN.invoke(target, a, b);
+    }
+
+    @Benchmark
+    public int originHandle() throws Throwable {
+        return (int) ORIGIN_HANDLE.invokeExact(target, a, b);
+    }
+
+    @Benchmark
+    public int chainHandle() throws Throwable {
+        return (int) CHAIN_HANDLE.invokeExact(target, a, b);
+    }
+}
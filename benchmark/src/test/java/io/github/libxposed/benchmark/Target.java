@@ -0,0 +1,14 @@
+package io.github.libxposed.benchmark;
+
+/**
+ * Hook targets shared by the benchmarks.
+ */
+public class Target {
+    public int add(int a, int b) {
+        return a + b;
+    }
+
+    public String concat(String a, String b) {
+        return a.concat(b);
+    }
+}
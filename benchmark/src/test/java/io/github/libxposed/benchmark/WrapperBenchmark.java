@@ -0,0 +1,80 @@
+package io.github.libxposed.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.api.XposedInterfaceWrapper;
+import io.github.libxposed.reference.ReferenceFramework;
+
+/**
+ * Overhead of calling the framework through {@link XposedInterfaceWrapper}, compared with calling it
+ * directly and with the former wrapper that checked a volatile base on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperBenchmark {
+    /**
+     * The delegation scheme {@link XposedInterfaceWrapper} used before: an attach check and a second
+     * read of a volatile base on every call.
+     */
+    static final class VolatileWrapper {
+        private volatile XposedInterface mBase;
+
+        VolatileWrapper(XposedInterface base) {
+            mBase = base;
+        }
+
+        private void ensureAttached() {
+            if (mBase == null) {
+                throw new IllegalStateException("Framework not attached");
+            }
+        }
+
+        long getFrameworkVersionCode() {
+            ensureAttached();
+            return mBase.getFrameworkVersionCode();
+        }
+    }
+
+    private XposedInterface base;
+    private XposedInterfaceWrapper wrapper;
+    private VolatileWrapper volatileWrapper;
+
+    @Setup
+    public void setUp() {
+        base = new ReferenceFramework();
+        wrapper = new XposedInterfaceWrapper();
+        wrapper.attachFramework(base);
+        volatileWrapper = new VolatileWrapper(base);
+    }
+
+    @Benchmark
+    public long direct() {
+        return base.getFrameworkVersionCode();
+    }
+
+    @Benchmark
+    public long wrapper() {
+        return wrapper.getFrameworkVersionCode();
+    }
+
+    @Benchmark
+    public long volatileWrapper() {
+        return volatileWrapper.getFrameworkVersionCode();
+    }
+}
@@ -0,0 +1,29 @@
+plugins {
+    `java-library`
+}
+
+// A plain JVM library, so module tests and benchmarks run on any host. A JVM library cannot depend
+// on the Android library :api, so the API sources are compiled in. Android classes come from stubs
+// that are not part of the artifact; Android unit tests provide android.jar instead.
+val androidStubs: SourceSet by sourceSets.creating
+
+sourceSets.main {
+    java.srcDir(project(":api").file("src/main/java"))
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    compileOnly(androidStubs.output)
+    compileOnly(libs.annotation)
+    testImplementation(androidStubs.output)
+    testImplementation(libs.junit)
+    testCompileOnly(libs.annotation)
+}
+
+tasks.test {
+    useJUnit()
+}
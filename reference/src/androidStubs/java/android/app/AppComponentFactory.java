@@ -0,0 +1,7 @@
+package android.app;
+
+/**
+ * Stand-in for the platform class.
+ */
+public class AppComponentFactory {
+}
@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * Stand-in for the platform class.
+ */
+public abstract class Context {
+}
@@ -0,0 +1,21 @@
+package android.content.pm;
+
+/**
+ * Stand-in for the platform class, with the fields frameworks commonly fill in.
+ */
+public class ApplicationInfo {
+    public String packageName;
+    public String sourceDir;
+    public String dataDir;
+    public int uid;
+
+    public ApplicationInfo() {
+    }
+
+    public ApplicationInfo(ApplicationInfo orig) {
+        packageName = orig.packageName;
+        sourceDir = orig.sourceDir;
+        dataDir = orig.dataDir;
+        uid = orig.uid;
+    }
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * Stand-in for the platform class, with the version codes only.
+ */
+public class Build {
+    public static class VERSION_CODES {
+        public static final int O = 26;
+        public static final int O_MR1 = 27;
+        public static final int P = 28;
+        public static final int Q = 29;
+        public static final int R = 30;
+    }
+}
@@ -0,0 +1,74 @@
+package android.os;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Stand-in for the platform class supporting read-only files. The JVM cannot duplicate descriptors,
+ * so {@link #dup()} opens the file again.
+ */
+public class ParcelFileDescriptor implements Closeable {
+    public static final int MODE_READ_ONLY = 0x10000000;
+
+    private final File file;
+    private final FileInputStream stream;
+
+    private ParcelFileDescriptor(File file) throws FileNotFoundException {
+        this.file = file;
+        this.stream = new FileInputStream(file);
+    }
+
+    public static ParcelFileDescriptor open(File file, int mode) throws FileNotFoundException {
+        if (mode != MODE_READ_ONLY) {
+            throw new IllegalArgumentException("Only MODE_READ_ONLY is supported");
+        }
+        return new ParcelFileDescriptor(file);
+    }
+
+    public ParcelFileDescriptor dup() throws IOException {
+        return new ParcelFileDescriptor(file);
+    }
+
+    public FileDescriptor getFileDescriptor() {
+        try {
+            return stream.getFD();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getStatSize() {
+        try {
+            return stream.getChannel().size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    public static class AutoCloseInputStream extends FileInputStream {
+        private final ParcelFileDescriptor descriptor;
+
+        public AutoCloseInputStream(ParcelFileDescriptor pfd) {
+            super(pfd.getFileDescriptor());
+            this.descriptor = pfd;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                descriptor.close();
+            }
+        }
+    }
+}
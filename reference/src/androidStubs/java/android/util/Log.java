@@ -0,0 +1,16 @@
+package android.util;
+
+/**
+ * Stand-in for the platform class, with the priority constants only.
+ */
+public final class Log {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    private Log() {
+    }
+}
@@ -0,0 +1,362 @@
+package io.github.libxposed.reference;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Executable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * One link of an interceptor chain. Arguments are shared with the upstream link until this link
+ * replaces one of them, so proceeding with unchanged arguments never copies them. Likewise, lists
+ * returned by {@link #getArgs()} view the arguments until the next replacement copies them.
+ */
+final class ChainImpl implements XposedInterface.Chain {
+    private final HookSlot slot;
+    private final HookRecord[] records;
+    private final int index;
+    private final MethodHandle origin;
+    private final Object thisObject;
+    private final Object[] originalArgs;
+    private Object[] args;
+    private boolean argsExposed;
+
+    // Outcome of the last proceed, used to recover from failures of protective hookers
+    private boolean proceeded;
+    private boolean proceedBoxed;
+    private Object proceedResult;
+    private long proceedBits;
+    private Throwable proceedThrowable;
+    private long proceedNanos;
+
+    private ChainImpl(HookSlot slot, HookRecord[] records, int index, MethodHandle origin, Object thisObject, Object[] args) {
+        this.slot = slot;
+        this.records = records;
+        this.index = index;
+        this.origin = origin;
+        this.thisObject = thisObject;
+        this.originalArgs = args;
+        this.args = args;
+    }
+
+    static Object next(HookSlot slot, HookRecord[] records, int index, MethodHandle origin, Object thisObject, Object[] args) throws Throwable {
+        if (index == records.length) {
+            return (Object) origin.invokeExact(thisObject, args);
+        }
+        return new ChainImpl(slot, records, index, origin, thisObject, args).run();
+    }
+
+    static long nextBits(HookSlot slot, HookRecord[] records, int index, MethodHandle origin, Object thisObject, Object[] args, ReturnKind kind) throws Throwable {
+        if (index == records.length) {
+            return kind.toBits((Object) origin.invokeExact(thisObject, args));
+        }
+        return new ChainImpl(slot, records, index, origin, thisObject, args).runBits(kind);
+    }
+
+    private Object run() throws Throwable {
+        var record = records[index];
+        long start = record.stats != null ? System.nanoTime() : 0;
+        try {
+            var result = record.intercept(this);
+            recordStats(record, start, false);
+            return result;
+        } catch (Throwable t) {
+            recordStats(record, start, !(proceeded && t == proceedThrowable));
+            recover(record, t);
+            if (!proceeded) {
+                return next(slot, records, index + 1, origin, thisObject, originalArgs);
+            }
+            return proceedBoxed ? proceedResult : slot.returnKind.box(proceedBits);
+        }
+    }
+
+    private long runBits(ReturnKind kind) throws Throwable {
+        var record = records[index];
+        long start = record.stats != null ? System.nanoTime() : 0;
+        try {
+            var result = record.interceptBits(this, kind);
+            recordStats(record, start, false);
+            return result;
+        } catch (Throwable t) {
+            recordStats(record, start, !(proceeded && t == proceedThrowable));
+            recover(record, t);
+            if (!proceeded) {
+                return nextBits(slot, records, index + 1, origin, thisObject, originalArgs, kind);
+            }
+            return proceedBoxed ? kind.toBits(proceedResult) : proceedBits;
+        }
+    }
+
+    /**
+     * Records the time spent in the hooker since {@code start}, excluding the time spent proceeding.
+     */
+    private void recordStats(HookRecord record, long start, boolean threw) {
+        if (record.stats != null) {
+            record.stats.record(System.nanoTime() - start - proceedNanos, threw);
+        }
+    }
+
+    /**
+     * Rethrows {@code t} unless the hooker is protective and {@code t} did not come from proceed. If
+     * the last proceed threw, its exception is propagated as if the hooker did not exist.
+     */
+    private void recover(HookRecord record, Throwable t) throws Throwable {
+        if (!record.protective || (proceeded && t == proceedThrowable)) {
+            throw t;
+        }
+        slot.log.log(Log.ERROR, ReferenceFramework.TAG, "Hooker of " + slot.executable + " failed", t);
+        if (proceedThrowable != null) {
+            throw proceedThrowable;
+        }
+    }
+
+    private Object doProceed(Object thisObject, Object[] args) throws Throwable {
+        proceeded = true;
+        proceedThrowable = null;
+        boolean timed = records[index].stats != null;
+        long start = timed ? System.nanoTime() : 0;
+        try {
+            var result = next(slot, records, index + 1, origin, thisObject, args);
+            proceedBoxed = true;
+            proceedResult = result;
+            return result;
+        } catch (Throwable t) {
+            proceedThrowable = t;
+            throw t;
+        } finally {
+            if (timed) {
+                proceedNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private long doProceedBits(ReturnKind kind) throws Throwable {
+        if (kind != slot.returnKind) {
+            throw new ClassCastException(slot.executable + " does not return " + kind.name().toLowerCase());
+        }
+        proceeded = true;
+        proceedThrowable = null;
+        boolean timed = records[index].stats != null;
+        long start = timed ? System.nanoTime() : 0;
+        try {
+            var result = nextBits(slot, records, index + 1, origin, thisObject, args, kind);
+            proceedBoxed = false;
+            proceedBits = result;
+            return result;
+        } catch (Throwable t) {
+            proceedThrowable = t;
+            throw t;
+        } finally {
+            if (timed) {
+                proceedNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private void checkParameter(int index, Class<?> type) {
+        if (slot.parameterTypes[index] != type) {
+            throw new ClassCastException("Parameter " + index + " of " + slot.executable + " is not " + type);
+        }
+    }
+
+    private Object[] ownArgs() {
+        if (args == originalArgs || argsExposed) {
+            args = args.clone();
+            argsExposed = false;
+        }
+        return args;
+    }
+
+    @NonNull
+    @Override
+    public Executable getExecutable() {
+        return slot.executable;
+    }
+
+    @Override
+    public Object getThisObject() {
+        return thisObject;
+    }
+
+    @NonNull
+    @Override
+    public List<Object> getArgs() {
+        argsExposed = true;
+        return Collections.unmodifiableList(Arrays.asList(args));
+    }
+
+    @Override
+    public Object getArg(int index) {
+        return args[index];
+    }
+
+    @Override
+    public boolean getBooleanArg(int index) {
+        checkParameter(index, boolean.class);
+        return (Boolean) args[index];
+    }
+
+    @Override
+    public byte getByteArg(int index) {
+        checkParameter(index, byte.class);
+        return (Byte) args[index];
+    }
+
+    @Override
+    public char getCharArg(int index) {
+        checkParameter(index, char.class);
+        return (Character) args[index];
+    }
+
+    @Override
+    public short getShortArg(int index) {
+        checkParameter(index, short.class);
+        return (Short) args[index];
+    }
+
+    @Override
+    public int getIntArg(int index) {
+        checkParameter(index, int.class);
+        return (Integer) args[index];
+    }
+
+    @Override
+    public long getLongArg(int index) {
+        checkParameter(index, long.class);
+        return (Long) args[index];
+    }
+
+    @Override
+    public float getFloatArg(int index) {
+        checkParameter(index, float.class);
+        return (Float) args[index];
+    }
+
+    @Override
+    public double getDoubleArg(int index) {
+        checkParameter(index, double.class);
+        return (Double) args[index];
+    }
+
+    @Override
+    public void setArg(int index, Object value) {
+        if (!slot.accepts(index, value)) {
+            throw new ClassCastException("Cannot assign " + value + " to parameter " + index + " of " + slot.executable);
+        }
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setBooleanArg(int index, boolean value) {
+        checkParameter(index, boolean.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setByteArg(int index, byte value) {
+        checkParameter(index, byte.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setCharArg(int index, char value) {
+        checkParameter(index, char.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setShortArg(int index, short value) {
+        checkParameter(index, short.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setIntArg(int index, int value) {
+        checkParameter(index, int.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setLongArg(int index, long value) {
+        checkParameter(index, long.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setFloatArg(int index, float value) {
+        checkParameter(index, float.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public void setDoubleArg(int index, double value) {
+        checkParameter(index, double.class);
+        ownArgs()[index] = value;
+    }
+
+    @Override
+    public Object proceed() throws Throwable {
+        return doProceed(thisObject, args);
+    }
+
+    @Override
+    public boolean proceedAsBoolean() throws Throwable {
+        return doProceedBits(ReturnKind.BOOLEAN) != 0;
+    }
+
+    @Override
+    public byte proceedAsByte() throws Throwable {
+        return (byte) doProceedBits(ReturnKind.BYTE);
+    }
+
+    @Override
+    public char proceedAsChar() throws Throwable {
+        return (char) doProceedBits(ReturnKind.CHAR);
+    }
+
+    @Override
+    public short proceedAsShort() throws Throwable {
+        return (short) doProceedBits(ReturnKind.SHORT);
+    }
+
+    @Override
+    public int proceedAsInt() throws Throwable {
+        return (int) doProceedBits(ReturnKind.INT);
+    }
+
+    @Override
+    public long proceedAsLong() throws Throwable {
+        return doProceedBits(ReturnKind.LONG);
+    }
+
+    @Override
+    public float proceedAsFloat() throws Throwable {
+        return Float.intBitsToFloat((int) doProceedBits(ReturnKind.FLOAT));
+    }
+
+    @Override
+    public double proceedAsDouble() throws Throwable {
+        return Double.longBitsToDouble(doProceedBits(ReturnKind.DOUBLE));
+    }
+
+    @Override
+    public Object proceed(@NonNull Object[] args) throws Throwable {
+        return doProceed(thisObject, args);
+    }
+
+    @Override
+    public Object proceedWith(@NonNull Object thisObject) throws Throwable {
+        return doProceed(thisObject, args);
+    }
+
+    @Override
+    public Object proceedWith(@NonNull Object thisObject, @NonNull Object[] args) throws Throwable {
+        return doProceed(thisObject, args);
+    }
+}
@@ -0,0 +1,117 @@
+package io.github.libxposed.reference;
+
+import androidx.annotation.NonNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * Immutable constructor invoker. Instances are cached per {@link HookSlot} and type.
+ *
+ * <p>The JVM only runs a constructor on an object it has just allocated, so the methods initializing
+ * an existing object throw {@link UnsupportedOperationException}.</p>
+ */
+final class ConstructorInvoker<T> implements XposedInterface.CtorInvoker<T> {
+    private final HookSlot slot;
+    private final Type type;
+    private final int maxPriority;
+    private final MethodHandle newInstanceHandle;
+
+    ConstructorInvoker(HookSlot slot, Type type) {
+        this.slot = slot;
+        this.type = type;
+        if (type instanceof Type.Chain chain) {
+            this.maxPriority = chain.maxPriority();
+            this.newInstanceHandle = slot.constructor(maxPriority);
+        } else {
+            this.maxPriority = 0;
+            this.newInstanceHandle = slot.newInstance;
+        }
+    }
+
+    private UnsupportedOperationException cannotInitialize() {
+        return new UnsupportedOperationException("The reference framework cannot run " + slot.executable + " on an existing object");
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public ConstructorInvoker<T> setType(@NonNull Type type) {
+        return (ConstructorInvoker<T>) slot.invoker(type);
+    }
+
+    /**
+     * Not supported by the reference framework.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Object invoke(Object thisObject, Object... args) {
+        throw cannotInitialize();
+    }
+
+    /**
+     * Not supported by the reference framework.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public Object invokeSpecial(@NonNull Object thisObject, Object... args) {
+        throw cannotInitialize();
+    }
+
+    /**
+     * Not supported by the reference framework.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @NonNull
+    @Override
+    public MethodHandle getMethodHandle() {
+        throw cannotInitialize();
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newInstance(Object... args) throws InvocationTargetException, InstantiationException {
+        var declaringClass = slot.executable.getDeclaringClass();
+        if (Modifier.isAbstract(declaringClass.getModifiers())) {
+            throw new InstantiationException(declaringClass.getName());
+        }
+        args = slot.checkArgs(args);
+        try {
+            return (T) (type instanceof Type.Origin ? slot.construct(args) : slot.construct(maxPriority, args));
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Only supported for the declaring class of the constructor, where it is the same as
+     * {@link #newInstance(Object...)}.
+     *
+     * @throws UnsupportedOperationException if {@code subClass} is a proper subclass of the declaring class
+     */
+    @NonNull
+    @Override
+    public <U> U newInstanceSpecial(@NonNull Class<U> subClass, Object... args) throws InvocationTargetException, InstantiationException {
+        var declaringClass = slot.executable.getDeclaringClass();
+        if (!declaringClass.isAssignableFrom(subClass)) {
+            throw new IllegalArgumentException(subClass + " is not a subclass of " + declaringClass);
+        }
+        if (subClass != declaringClass) {
+            throw cannotInitialize();
+        }
+        return subClass.cast(newInstance(args));
+    }
+
+    @NonNull
+    @Override
+    public MethodHandle getNewInstanceHandle() {
+        return newInstanceHandle;
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.libxposed.reference;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Objects;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.api.error.HookFailedError;
+
+/**
+ * Deferred hook builder. The JVM offers no callback on class initialization, so the reference
+ * framework resolves and installs deferred hooks right away, loading but not initializing the class.
+ */
+final class DeferredHookBuilderImpl implements XposedInterface.DeferredHookBuilder {
+    private final ReferenceFramework framework;
+    private final ClassLoader classLoader;
+    private final String className;
+    private final String methodName;
+    private final String descriptor;
+    private int priority = XposedInterface.PRIORITY_DEFAULT;
+    private XposedInterface.ExceptionMode exceptionMode = XposedInterface.ExceptionMode.DEFAULT;
+
+    DeferredHookBuilderImpl(ReferenceFramework framework, ClassLoader classLoader, String className,
+                            String methodName, String descriptor) {
+        this.framework = framework;
+        this.classLoader = classLoader;
+        this.className = className;
+        this.methodName = methodName;
+        this.descriptor = descriptor;
+    }
+
+    @Override
+    public XposedInterface.DeferredHookBuilder setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @Override
+    public XposedInterface.DeferredHookBuilder setExceptionMode(@NonNull XposedInterface.ExceptionMode mode) {
+        this.exceptionMode = Objects.requireNonNull(mode);
+        return this;
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.DeferredHookHandle intercept(@NonNull XposedInterface.Hooker hooker) {
+        if (hooker == null) {
+            throw new IllegalArgumentException("hooker is null");
+        }
+        XposedInterface.HookHandle handle = null;
+        try {
+            handle = framework.hook(classLoader, className, methodName, descriptor)
+                    .setPriority(priority)
+                    .setExceptionMode(exceptionMode)
+                    .intercept(hooker);
+        } catch (ReflectiveOperationException | RuntimeException | HookFailedError e) {
+            // Only an invalid hooker is reported to the caller; other failures leave the hook uninstalled
+            framework.log(Log.ERROR, ReferenceFramework.TAG, "Cannot install deferred hook on " + className + "." + methodName + descriptor, e);
+        }
+        return new Handle(handle);
+    }
+
+    private static final class Handle implements XposedInterface.DeferredHookHandle {
+        private final XposedInterface.HookHandle handle;
+        private volatile boolean cancelled;
+
+        Handle(XposedInterface.HookHandle handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public boolean isInstalled() {
+            return handle != null && !cancelled;
+        }
+
+        @Nullable
+        @Override
+        public XposedInterface.HookHandle getHookHandle() {
+            return cancelled ? null : handle;
+        }
+
+        @Override
+        public void unhook() {
+            cancelled = true;
+            if (handle != null) {
+                handle.unhook();
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package io.github.libxposed.reference;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * Encodes structured log records into a binary stream, read back by {@link EventLogReader}.
+ *
+ * <p>The stream starts with {@link #MAGIC} and {@link #VERSION}, followed by records made of a type
+ * byte, the payload length as a varint and the payload. Keys and tags are interned: the first use
+ * of a string writes a {@link #RECORD_STRING} record assigning it an id, later records refer to the
+ * id. An {@link #RECORD_EVENT} payload holds the wall time in milliseconds, the priority, the tag id
+ * ({@code 0} for no tag), the thread id, the field count and the fields. A field is a key id, a type
+ * byte and the value: a zigzag varint, an IEEE 754 double, nothing for booleans and null, or a
+ * length-prefixed UTF-8 string. Integers are unsigned LEB128 varints; doubles are big-endian.</p>
+ */
+final class EventLog {
+    static final byte[] MAGIC = {'X', 'P', 'E', 'V'};
+    static final int VERSION = 1;
+
+    static final int RECORD_STRING = 1;
+    static final int RECORD_EVENT = 2;
+
+    static final int FIELD_LONG = 1;
+    static final int FIELD_DOUBLE = 2;
+    static final int FIELD_TRUE = 3;
+    static final int FIELD_FALSE = 4;
+    static final int FIELD_STRING = 5;
+    static final int FIELD_NULL = 6;
+
+    static final XposedInterface.EventBuilder DISCARD = new XposedInterface.EventBuilder() {
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, long value) {
+            return this;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, double value) {
+            return this;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, boolean value) {
+            return this;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, @Nullable String value) {
+            return this;
+        }
+
+        @Override
+        public void write() {
+        }
+    };
+
+    private final ReferenceFramework framework;
+    private final OutputStream out;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ThreadLocal<Builder> builders = ThreadLocal.withInitial(Builder::new);
+    private int nextId = 1;
+    private boolean failed;
+
+    EventLog(ReferenceFramework framework, OutputStream out) {
+        this.framework = framework;
+        this.out = out;
+        var header = Arrays.copyOf(MAGIC, MAGIC.length + 1);
+        header[MAGIC.length] = VERSION;
+        synchronized (this) {
+            emit(header, 0, header.length);
+        }
+    }
+
+    XposedInterface.EventBuilder start(int priority, String tag) {
+        var builder = builders.get();
+        if (builder.inUse) {
+            // Another record is being built on this thread, for example by code computing a field,
+            // or a builder was abandoned without write(). The new builder becomes the one reused by
+            // the thread, so an abandoned builder costs a single allocation.
+            builder = new Builder();
+            builders.set(builder);
+        }
+        builder.start(priority, tag);
+        return builder;
+    }
+
+    private int intern(String string) {
+        var id = ids.get(string);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(string);
+            if (id != null) {
+                return id;
+            }
+            int newId = nextId++;
+            var record = new Builder();
+            record.putVarint(newId);
+            record.putUtf8(string);
+            emit(RECORD_STRING, record);
+            ids.put(string, newId);
+            return newId;
+        }
+    }
+
+    private synchronized void emit(int type, Builder record) {
+        var prefix = record.prefix;
+        prefix[0] = (byte) type;
+        int length = 1 + writeVarint(prefix, 1, record.length());
+        emit(prefix, 0, length);
+        emit(record.buffer, 0, record.position);
+    }
+
+    private void emit(byte[] bytes, int offset, int length) {
+        if (failed) {
+            return;
+        }
+        try {
+            out.write(bytes, offset, length);
+        } catch (IOException e) {
+            failed = true;
+            framework.log(Log.ERROR, ReferenceFramework.TAG, "Cannot write structured log records", e);
+        }
+    }
+
+    private static int writeVarint(byte[] buffer, int position, long value) {
+        int start = position;
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position - start;
+    }
+
+    /**
+     * Reusable record builder. Fields are encoded into {@link #buffer} as they are added; the event
+     * header is encoded into {@link #header} on {@link #write()} since it holds the field count.
+     */
+    private final class Builder implements XposedInterface.EventBuilder {
+        final byte[] prefix = new byte[6];
+        final byte[] header = new byte[32];
+        byte[] buffer = new byte[256];
+        int position;
+        int headerLength;
+        boolean inUse;
+        private int priority;
+        private String tag;
+        private int fieldCount;
+
+        void start(int priority, String tag) {
+            this.inUse = true;
+            this.priority = priority;
+            this.tag = tag;
+            this.position = 0;
+            this.headerLength = 0;
+            this.fieldCount = 0;
+        }
+
+        int length() {
+            return headerLength + position;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, long value) {
+            putField(key, FIELD_LONG);
+            putVarint((value << 1) ^ (value >> 63));
+            return this;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, double value) {
+            putField(key, FIELD_DOUBLE);
+            ensure(8);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (bits >>> shift);
+            }
+            return this;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, boolean value) {
+            putField(key, value ? FIELD_TRUE : FIELD_FALSE);
+            return this;
+        }
+
+        @Override
+        public XposedInterface.EventBuilder put(@NonNull String key, @Nullable String value) {
+            if (value == null) {
+                putField(key, FIELD_NULL);
+            } else {
+                putField(key, FIELD_STRING);
+                putUtf8(value);
+            }
+            return this;
+        }
+
+        @Override
+        public void write() {
+            if (!inUse) {
+                throw new IllegalStateException("Record already written");
+            }
+            int length = 0;
+            length += writeVarint(header, length, System.currentTimeMillis());
+            header[length++] = (byte) priority;
+            length += writeVarint(header, length, tag == null ? 0 : intern(tag));
+            length += writeVarint(header, length, Thread.currentThread().getId());
+            length += writeVarint(header, length, fieldCount);
+            headerLength = length;
+            synchronized (EventLog.this) {
+                prefix[0] = RECORD_EVENT;
+                int prefixLength = 1 + writeVarint(prefix, 1, length());
+                emit(prefix, 0, prefixLength);
+                emit(header, 0, headerLength);
+                emit(buffer, 0, position);
+            }
+            tag = null;
+            inUse = false;
+        }
+
+        private void putField(String key, int type) {
+            if (!inUse) {
+                throw new IllegalStateException("Record already written");
+            }
+            putVarint(intern(key));
+            ensure(1);
+            buffer[position++] = (byte) type;
+            fieldCount++;
+        }
+
+        void putVarint(long value) {
+            ensure(10);
+            position += writeVarint(buffer, position, value);
+        }
+
+        /**
+         * Encodes a string as UTF-8 without creating a byte array for it. Unpaired surrogates are
+         * replaced by {@code '?'}, as {@link String#getBytes(java.nio.charset.Charset)} does.
+         */
+        void putUtf8(String string) {
+            int length = string.length();
+            int bytes = 0;
+            for (int i = 0; i < length; i++) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    bytes += 1;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    bytes += 1;
+                } else {
+                    bytes += 3;
+                }
+            }
+            putVarint(bytes);
+            ensure(bytes);
+            var buffer = this.buffer;
+            int position = this.position;
+            for (int i = 0; i < length; i++) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = '?';
+                } else {
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            this.position = position;
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+    }
+}
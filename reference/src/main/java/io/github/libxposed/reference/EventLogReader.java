@@ -0,0 +1,184 @@
+package io.github.libxposed.reference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes structured log records written by {@link ReferenceFramework#logEvent(int, String)} to the
+ * stream set with {@link ReferenceFramework#setEventOutput(java.io.OutputStream)}. Records of unknown
+ * types are skipped.
+ */
+public final class EventLogReader {
+    private final DataInputStream in;
+    private final HashMap<Integer, String> strings = new HashMap<>();
+
+    /**
+     * A decoded structured log record.
+     *
+     * @param timeMillis The wall time the record was written at
+     * @param priority   The log priority, see {@link android.util.Log}
+     * @param tag        The log tag
+     * @param threadId   The id of the thread that wrote the record
+     * @param fields     The fields in the order they were added. Values are {@link Long}, {@link Double},
+     *                   {@link Boolean}, {@link String} or {@code null}.
+     */
+    public record Event(long timeMillis, int priority, @Nullable String tag, long threadId,
+                        @NonNull Map<String, Object> fields) {
+    }
+
+    /**
+     * Creates a reader and reads the stream header.
+     *
+     * @param in The stream to read from
+     * @throws IOException if the stream cannot be read or is not a structured log
+     */
+    public EventLogReader(@NonNull InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        var magic = new byte[EventLog.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, EventLog.MAGIC)) {
+            throw new IOException("Not a structured log");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != EventLog.VERSION) {
+            throw new IOException("Unsupported structured log version " + version);
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record, or {@code null} at the end of the stream
+     * @throws IOException if the stream cannot be read or is malformed
+     */
+    @Nullable
+    public Event next() throws IOException {
+        for (; ; ) {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+            int length = (int) readVarint();
+            var payload = new byte[length];
+            in.readFully(payload);
+            var record = new Payload(payload);
+            switch (type) {
+                case EventLog.RECORD_STRING -> {
+                    int id = (int) record.varint();
+                    strings.put(id, record.utf8());
+                }
+                case EventLog.RECORD_EVENT -> {
+                    return readEvent(record);
+                }
+                default -> {
+                    // Skip records added by later versions
+                }
+            }
+        }
+    }
+
+    private Event readEvent(Payload record) throws IOException {
+        long timeMillis = record.varint();
+        int priority = record.u1();
+        int tagId = (int) record.varint();
+        String tag = tagId == 0 ? null : string(tagId);
+        long threadId = record.varint();
+        int count = (int) record.varint();
+        var fields = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < count; i++) {
+            var key = string((int) record.varint());
+            int fieldType = record.u1();
+            Object value = switch (fieldType) {
+                case EventLog.FIELD_LONG -> {
+                    long zigzag = record.varint();
+                    yield (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                case EventLog.FIELD_DOUBLE -> Double.longBitsToDouble(record.u8());
+                case EventLog.FIELD_TRUE -> true;
+                case EventLog.FIELD_FALSE -> false;
+                case EventLog.FIELD_STRING -> record.utf8();
+                case EventLog.FIELD_NULL -> null;
+                default -> throw new IOException("Unknown field type " + fieldType);
+            };
+            fields.put(key, value);
+        }
+        return new Event(timeMillis, priority, tag, threadId, Collections.unmodifiableMap(fields));
+    }
+
+    private String string(int id) throws IOException {
+        var string = strings.get(id);
+        if (string == null) {
+            throw new IOException("Undefined string id " + id);
+        }
+        return string;
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static final class Payload {
+        private final byte[] bytes;
+        private int position;
+
+        Payload(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int u1() throws IOException {
+            if (position >= bytes.length) {
+                throw new EOFException("Truncated record");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        long u8() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | u1();
+            }
+            return value;
+        }
+
+        long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = u1();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String utf8() throws IOException {
+            int length = (int) varint();
+            if (length < 0 || length > bytes.length - position) {
+                throw new EOFException("Truncated record");
+            }
+            var string = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return string;
+        }
+    }
+}
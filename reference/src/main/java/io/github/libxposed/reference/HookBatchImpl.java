@@ -0,0 +1,93 @@
+package io.github.libxposed.reference;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Executable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.api.error.HookFailedError;
+
+final class HookBatchImpl implements XposedInterface.HookBatch {
+    private final ReferenceFramework framework;
+    private final LinkedHashSet<Executable> origins;
+    private int priority = XposedInterface.PRIORITY_DEFAULT;
+    private XposedInterface.ExceptionMode exceptionMode = XposedInterface.ExceptionMode.DEFAULT;
+    private XposedInterface.Hooker hooker;
+    private boolean committed;
+
+    HookBatchImpl(ReferenceFramework framework, Collection<? extends Executable> origins) {
+        this.framework = framework;
+        this.origins = new LinkedHashSet<>(origins);
+    }
+
+    @Override
+    public XposedInterface.HookBatch setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @Override
+    public XposedInterface.HookBatch setExceptionMode(@NonNull XposedInterface.ExceptionMode mode) {
+        this.exceptionMode = Objects.requireNonNull(mode);
+        return this;
+    }
+
+    @Override
+    public XposedInterface.HookBatch setHooker(@NonNull XposedInterface.Hooker hooker) {
+        this.hooker = hooker;
+        return this;
+    }
+
+    /**
+     * Validates every origin before installing anything. Executables that cannot be accessed through
+     * reflection are reported as failures.
+     */
+    @NonNull
+    @Override
+    public synchronized Result commit() {
+        if (committed) {
+            throw new IllegalStateException("Batch already committed");
+        }
+        if (hooker == null) {
+            throw new IllegalArgumentException("hooker is null");
+        }
+        var builders = new ArrayList<XposedInterface.HookBuilder>(origins.size());
+        var failures = new LinkedHashMap<Executable, HookFailedError>();
+        for (var origin : origins) {
+            try {
+                builders.add(framework.hook(origin).setPriority(priority).setExceptionMode(exceptionMode));
+            } catch (HookFailedError e) {
+                failures.put(origin, e);
+            }
+        }
+        committed = true;
+        var handles = new ArrayList<XposedInterface.HookHandle>(builders.size());
+        for (var builder : builders) {
+            handles.add(builder.intercept(hooker));
+        }
+        return new BatchResult(Collections.unmodifiableList(handles), Collections.unmodifiableMap(failures));
+    }
+
+    private record BatchResult(List<XposedInterface.HookHandle> handles,
+                               Map<Executable, HookFailedError> failures) implements Result {
+        @NonNull
+        @Override
+        public List<XposedInterface.HookHandle> getHandles() {
+            return handles;
+        }
+
+        @NonNull
+        @Override
+        public Map<Executable, HookFailedError> getFailures() {
+            return failures;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.libxposed.reference;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+import io.github.libxposed.api.XposedInterface;
+
+final class HookBuilderImpl implements XposedInterface.HookBuilder {
+    private final HookSlot slot;
+    private int priority = XposedInterface.PRIORITY_DEFAULT;
+    private XposedInterface.ExceptionMode exceptionMode = XposedInterface.ExceptionMode.DEFAULT;
+    private boolean statsEnabled;
+
+    HookBuilderImpl(HookSlot slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public XposedInterface.HookBuilder setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    @Override
+    public XposedInterface.HookBuilder setExceptionMode(@NonNull XposedInterface.ExceptionMode mode) {
+        this.exceptionMode = Objects.requireNonNull(mode);
+        return this;
+    }
+
+    @Override
+    public XposedInterface.HookBuilder setStatsEnabled(boolean enabled) {
+        this.statsEnabled = enabled;
+        return this;
+    }
+
+    private XposedInterface.HookHandle build(Object hooker, ReturnKind kind) {
+        if (hooker == null) {
+            throw new IllegalArgumentException("hooker is null");
+        }
+        if (kind != ReturnKind.OBJECT && kind != slot.returnKind) {
+            throw new IllegalArgumentException(slot.executable + " does not return " + kind.name().toLowerCase());
+        }
+        var record = new HookRecord(slot, priority, slot.isProtective(exceptionMode),
+                statsEnabled ? new StatsRecorder() : null, hooker, kind);
+        slot.add(record);
+        return record;
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle intercept(@NonNull XposedInterface.Hooker hooker) {
+        return build(hooker, ReturnKind.OBJECT);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptBoolean(@NonNull XposedInterface.BooleanHooker hooker) {
+        return build(hooker, ReturnKind.BOOLEAN);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptByte(@NonNull XposedInterface.ByteHooker hooker) {
+        return build(hooker, ReturnKind.BYTE);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptChar(@NonNull XposedInterface.CharHooker hooker) {
+        return build(hooker, ReturnKind.CHAR);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptShort(@NonNull XposedInterface.ShortHooker hooker) {
+        return build(hooker, ReturnKind.SHORT);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptInt(@NonNull XposedInterface.IntHooker hooker) {
+        return build(hooker, ReturnKind.INT);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptLong(@NonNull XposedInterface.LongHooker hooker) {
+        return build(hooker, ReturnKind.LONG);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptFloat(@NonNull XposedInterface.FloatHooker hooker) {
+        return build(hooker, ReturnKind.FLOAT);
+    }
+
+    @NonNull
+    @Override
+    public XposedInterface.HookHandle interceptDouble(@NonNull XposedInterface.DoubleHooker hooker) {
+        return build(hooker, ReturnKind.DOUBLE);
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.libxposed.reference;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Executable;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * A hook installed on a {@link HookSlot}, which is also its handle.
+ */
+final class HookRecord implements XposedInterface.HookHandle {
+    final HookSlot slot;
+    final int priority;
+    final boolean protective;
+    final StatsRecorder stats;
+    private final Object hooker;
+    private final ReturnKind kind;
+
+    /**
+     * @param kind {@link ReturnKind#OBJECT} for a generic {@link XposedInterface.Hooker}, otherwise the
+     *             kind of the primitive specialized hooker
+     * @param stats The recorder for the hook, or {@code null} if statistics are disabled
+     */
+    HookRecord(HookSlot slot, int priority, boolean protective, StatsRecorder stats, Object hooker, ReturnKind kind) {
+        this.slot = slot;
+        this.priority = priority;
+        this.protective = protective;
+        this.stats = stats;
+        this.hooker = hooker;
+        this.kind = kind;
+    }
+
+    Object intercept(ChainImpl chain) throws Throwable {
+        if (kind == ReturnKind.OBJECT) {
+            return ((XposedInterface.Hooker) hooker).intercept(chain);
+        }
+        return kind.box(interceptTyped(chain));
+    }
+
+    long interceptBits(ChainImpl chain, ReturnKind expected) throws Throwable {
+        if (kind == ReturnKind.OBJECT) {
+            return expected.toBits(((XposedInterface.Hooker) hooker).intercept(chain));
+        }
+        return interceptTyped(chain);
+    }
+
+    private long interceptTyped(ChainImpl chain) throws Throwable {
+        return switch (kind) {
+            case BOOLEAN -> ((XposedInterface.BooleanHooker) hooker).intercept(chain) ? 1 : 0;
+            case BYTE -> ((XposedInterface.ByteHooker) hooker).intercept(chain);
+            case CHAR -> ((XposedInterface.CharHooker) hooker).intercept(chain);
+            case SHORT -> ((XposedInterface.ShortHooker) hooker).intercept(chain);
+            case INT -> ((XposedInterface.IntHooker) hooker).intercept(chain);
+            case LONG -> ((XposedInterface.LongHooker) hooker).intercept(chain);
+            case FLOAT -> Float.floatToRawIntBits(((XposedInterface.FloatHooker) hooker).intercept(chain));
+            case DOUBLE -> Double.doubleToRawLongBits(((XposedInterface.DoubleHooker) hooker).intercept(chain));
+            case OBJECT -> throw new AssertionError();
+        };
+    }
+
+    @NonNull
+    @Override
+    public Executable getExecutable() {
+        return slot.executable;
+    }
+
+    @Override
+    public XposedInterface.HookStats getStats() {
+        return stats == null ? null : stats.snapshot();
+    }
+
+    @Override
+    public void unhook() {
+        slot.remove(this);
+    }
+}
@@ -0,0 +1,299 @@
+package io.github.libxposed.reference;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * Per-executable state of the reference framework: the hooks installed on the executable, handles to
+ * its original implementation and the cached invokers.
+ *
+ * <p>Constructors are treated as methods returning the new instance: the innermost link of the chain
+ * allocates and initializes the object through {@link #newInstance}, so hookers run before it exists
+ * and see {@code null} as {@code this}. Class initializers are treated as static methods without
+ * parameters.</p>
+ */
+final class HookSlot {
+    private static final HookRecord[] NO_HOOKS = new HookRecord[0];
+    private static final MethodHandle DISPATCH;
+    private static final MethodHandle CONSTRUCT;
+    private static final MethodHandle INITIALIZE_CLASS;
+    /**
+     * The executable reported for class initializers, which have no reflection object on the JVM.
+     */
+    static final Method CLASS_INITIALIZER;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            DISPATCH = lookup.findVirtual(HookSlot.class, "dispatch",
+                    MethodType.methodType(Object.class, int.class, MethodHandle.class, Object.class, Object[].class));
+            CONSTRUCT = lookup.findVirtual(HookSlot.class, "construct",
+                    MethodType.methodType(Object.class, int.class, Object[].class));
+            INITIALIZE_CLASS = lookup.findStatic(HookSlot.class, "initializeClass",
+                    MethodType.methodType(Object.class, Class.class, Object.class, Object[].class));
+            CLASS_INITIALIZER = HookSlot.class.getDeclaredMethod("classInitializer");
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    final LogWriter log;
+    private final XposedInterface.ExceptionMode defaultExceptionMode;
+    final Executable executable;
+    final Class<?>[] parameterTypes;
+    /**
+     * {@link #parameterTypes} with primitive types replaced by their wrappers.
+     */
+    private final Class<?>[] boxedParameterTypes;
+    final ReturnKind returnKind;
+    /**
+     * Whether the executable takes no {@code this}, which includes constructors and class initializers.
+     */
+    final boolean isStatic;
+    /**
+     * The original executable with its declared type, as returned by {@link MethodHandles.Lookup#unreflect(Method)}.
+     * {@code null} for constructors, which cannot be called on an existing object.
+     */
+    final MethodHandle direct;
+    /**
+     * The original executable adapted to {@code (Object, Object[])Object}. For constructors, the
+     * handle ignores {@code this} and returns the new instance.
+     */
+    final MethodHandle origin;
+    /**
+     * For constructors, the handle allocating and initializing a new instance, as returned by
+     * {@link MethodHandles.Lookup#unreflectConstructor(Constructor)}; otherwise {@code null}.
+     */
+    final MethodHandle newInstance;
+    private volatile MethodHandle special;
+
+    private static final AtomicReferenceFieldUpdater<HookSlot, HookRecord[]> HOOKS =
+            AtomicReferenceFieldUpdater.newUpdater(HookSlot.class, HookRecord[].class, "hooks");
+
+    /**
+     * Hooks sorted by descending priority. The array is never modified; hooking and unhooking swap in
+     * a new array, so dispatch reads a consistent snapshot without taking a lock.
+     */
+    private volatile HookRecord[] hooks = NO_HOOKS;
+    private final XposedInterface.Invoker<?, ?> originInvoker;
+    private final ConcurrentHashMap<Integer, XposedInterface.Invoker<?, ?>> chainInvokers = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultExceptionMode The mode {@link XposedInterface.ExceptionMode#DEFAULT} resolves to
+     */
+    HookSlot(LogWriter log, XposedInterface.ExceptionMode defaultExceptionMode, Executable executable) {
+        this.log = log;
+        this.defaultExceptionMode = defaultExceptionMode;
+        this.executable = executable;
+        this.parameterTypes = executable.getParameterTypes();
+        this.boxedParameterTypes = MethodType.methodType(void.class, parameterTypes).wrap().parameterArray();
+        try {
+            executable.setAccessible(true);
+            if (executable instanceof Method method) {
+                this.returnKind = ReturnKind.of(method.getReturnType());
+                this.isStatic = Modifier.isStatic(method.getModifiers());
+                this.direct = MethodHandles.lookup().unreflect(method);
+                this.origin = spread(direct);
+                this.newInstance = null;
+            } else {
+                this.returnKind = ReturnKind.OBJECT;
+                this.isStatic = true;
+                this.direct = null;
+                this.newInstance = MethodHandles.lookup().unreflectConstructor((Constructor<?>) executable);
+                this.origin = spread(newInstance);
+            }
+        } catch (RuntimeException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access " + executable, e);
+        }
+        this.originInvoker = newInvoker(XposedInterface.Invoker.Type.ORIGIN);
+    }
+
+    /**
+     * Creates the slot of the class initializer of {@code type}.
+     */
+    HookSlot(LogWriter log, XposedInterface.ExceptionMode defaultExceptionMode, Class<?> type) {
+        this.log = log;
+        this.defaultExceptionMode = defaultExceptionMode;
+        this.executable = CLASS_INITIALIZER;
+        this.parameterTypes = new Class<?>[0];
+        this.boxedParameterTypes = parameterTypes;
+        this.returnKind = ReturnKind.OBJECT;
+        this.isStatic = true;
+        this.origin = MethodHandles.insertArguments(INITIALIZE_CLASS, 0, type);
+        this.direct = MethodHandles.insertArguments(origin, 0, null, new Object[0])
+                .asType(MethodType.methodType(void.class));
+        this.newInstance = null;
+        this.originInvoker = newInvoker(XposedInterface.Invoker.Type.ORIGIN);
+    }
+
+    private static void classInitializer() {
+    }
+
+    private static Object initializeClass(Class<?> type, Object thisObject, Object[] args) throws ClassNotFoundException {
+        Class.forName(type.getName(), true, type.getClassLoader());
+        return null;
+    }
+
+    private MethodHandle spread(MethodHandle handle) {
+        var spread = handle.asType(handle.type().generic()).asSpreader(Object[].class, parameterTypes.length);
+        return isStatic ? MethodHandles.dropArguments(spread, 0, Object.class) : spread;
+    }
+
+    /**
+     * Checks whether a boxed value can be passed as the parameter at the given index.
+     */
+    boolean accepts(int index, Object value) {
+        return value == null ? !parameterTypes[index].isPrimitive() : boxedParameterTypes[index].isInstance(value);
+    }
+
+    /**
+     * Checks the arguments of a reflective call, so that bad arguments fail like in
+     * {@link Method#invoke(Object, Object...)} instead of inside the call.
+     *
+     * @return The arguments, or an empty array if {@code args} is {@code null}
+     * @throws IllegalArgumentException if the number or a type of the arguments is wrong
+     */
+    Object[] checkArgs(Object[] args) {
+        int count = args == null ? 0 : args.length;
+        if (count != parameterTypes.length) {
+            throw new IllegalArgumentException("Wrong number of arguments: expected " + parameterTypes.length + ", got " + count);
+        }
+        for (int i = 0; i < count; i++) {
+            if (!accepts(i, args[i])) {
+                throw new IllegalArgumentException("Argument " + i + " of " + executable + " is not " + parameterTypes[i].getName() + ": " + args[i]);
+            }
+        }
+        return args == null ? new Object[0] : args;
+    }
+
+    boolean isProtective(XposedInterface.ExceptionMode mode) {
+        return (mode == XposedInterface.ExceptionMode.DEFAULT ? defaultExceptionMode : mode) == XposedInterface.ExceptionMode.PROTECTIVE;
+    }
+
+    MethodHandle special() {
+        if (!(executable instanceof Method method)) {
+            return origin;
+        }
+        var handle = special;
+        if (handle == null) {
+            var declaringClass = executable.getDeclaringClass();
+            try {
+                handle = spread(MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup())
+                        .unreflectSpecial(method, declaringClass));
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Cannot access " + executable, e);
+            }
+            special = handle;
+        }
+        return handle;
+    }
+
+    /**
+     * Builds a handle that dispatches through the hooks with at most the given priority, with the same
+     * type as {@link #direct}.
+     */
+    MethodHandle dispatcher(int maxPriority) {
+        var handle = MethodHandles.insertArguments(DISPATCH, 0, this, maxPriority, origin);
+        if (isStatic) {
+            handle = MethodHandles.insertArguments(handle, 0, (Object) null);
+        }
+        return handle.asCollector(Object[].class, parameterTypes.length).asType(direct.type());
+    }
+
+    /**
+     * Builds a handle that allocates an instance and initializes it through the hooks with at most the
+     * given priority, with the same type as {@link #newInstance}.
+     */
+    MethodHandle constructor(int maxPriority) {
+        return MethodHandles.insertArguments(CONSTRUCT, 0, this, maxPriority)
+                .asCollector(Object[].class, parameterTypes.length).asType(newInstance.type());
+    }
+
+    XposedInterface.Invoker<?, ?> invoker(XposedInterface.Invoker.Type type) {
+        if (type instanceof XposedInterface.Invoker.Type.Chain chain) {
+            return chainInvokers.computeIfAbsent(chain.maxPriority(),
+                    maxPriority -> newInvoker(new XposedInterface.Invoker.Type.Chain(maxPriority)));
+        }
+        return originInvoker;
+    }
+
+    private XposedInterface.Invoker<?, ?> newInvoker(XposedInterface.Invoker.Type type) {
+        return executable instanceof Constructor<?> ? new ConstructorInvoker<>(this, type) : new MethodInvoker(this, type);
+    }
+
+    void add(HookRecord record) {
+        HookRecord[] current, updated;
+        do {
+            current = hooks;
+            int index = 0;
+            while (index < current.length && current[index].priority >= record.priority) {
+                index++;
+            }
+            updated = new HookRecord[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            updated[index] = record;
+            System.arraycopy(current, index, updated, index + 1, current.length - index);
+        } while (!HOOKS.compareAndSet(this, current, updated));
+    }
+
+    void remove(HookRecord record) {
+        HookRecord[] current, updated;
+        do {
+            current = hooks;
+            int index = Arrays.asList(current).indexOf(record);
+            if (index < 0) {
+                return;
+            }
+            updated = current.length == 1 ? NO_HOOKS : new HookRecord[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+        } while (!HOOKS.compareAndSet(this, current, updated));
+    }
+
+    /**
+     * Calls the executable through the hooks with at most the given priority, ending with {@code origin}.
+     */
+    Object dispatch(int maxPriority, MethodHandle origin, Object thisObject, Object[] args) throws Throwable {
+        var records = hooks;
+        return ChainImpl.next(this, records, first(records, maxPriority), origin, thisObject, args);
+    }
+
+    /**
+     * Creates an instance with the constructor through the hooks with at most the given priority. The
+     * innermost link allocates the instance, so hookers that do not proceed must return one.
+     *
+     * @throws IllegalStateException if the hookers did not return an instance of the declaring class
+     */
+    Object construct(int maxPriority, Object[] args) throws Throwable {
+        var instance = dispatch(maxPriority, origin, null, args);
+        if (!executable.getDeclaringClass().isInstance(instance)) {
+            throw new IllegalStateException("Hookers of " + executable + " returned " + instance + " instead of an instance");
+        }
+        return instance;
+    }
+
+    /**
+     * Creates an instance with the constructor, without going through the hooks.
+     */
+    Object construct(Object[] args) throws Throwable {
+        return (Object) origin.invokeExact((Object) null, args);
+    }
+
+    private static int first(HookRecord[] records, int maxPriority) {
+        int start = 0;
+        while (start < records.length && records[start].priority > maxPriority) {
+            start++;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.libxposed.reference;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter for log records, with one bucket per tag and priority. Records over the
+ * limit are counted, and the count is reported at most once per {@link #SUMMARY_INTERVAL_NANOS} per
+ * bucket: with the next record let through, or by a timer if the bucket keeps suppressing or falls
+ * silent.
+ */
+final class LogRateLimiter {
+    static final long SUMMARY_INTERVAL_NANOS = 1_000_000_000L;
+
+    /**
+     * Receives counts of suppressed records that are reported by the timer.
+     */
+    @FunctionalInterface
+    interface Reporter {
+        void report(int priority, String tag, long suppressed);
+    }
+
+    // Shared by all limiters; tasks only exist while a bucket has unreported records
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "XposedLogRateLimit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Returned by {@link #acquire(int, String)} when the record is over the limit.
+     */
+    static final long SUPPRESSED = -1;
+
+    // Priorities are small constants (2..7 in android.util.Log); other values wrap around
+    private static final int PRIORITIES = 8;
+
+    private final double tokensPerNano;
+    private final int burst;
+    private final Reporter reporter;
+    private final ConcurrentHashMap<String, Bucket[]> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param ratePerSecond The number of records per second let through for each tag and priority
+     * @param burst         The number of records let through at once after a quiet period
+     * @param reporter      The receiver of counts reported by the timer
+     */
+    LogRateLimiter(int ratePerSecond, int burst, Reporter reporter) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + ratePerSecond + "/s, burst " + burst);
+        }
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.reporter = reporter;
+    }
+
+    /**
+     * Takes a token for a record.
+     *
+     * @return {@link #SUPPRESSED} if the record must be dropped, otherwise the number of suppressed
+     * records to report before it
+     */
+    long acquire(int priority, String tag) {
+        var perTag = buckets.computeIfAbsent(tag == null ? "" : tag, this::newBuckets);
+        var bucket = perTag[Math.floorMod(priority, PRIORITIES)];
+        return bucket.acquire(System.nanoTime());
+    }
+
+    private Bucket[] newBuckets(String tag) {
+        var perTag = new Bucket[PRIORITIES];
+        long now = System.nanoTime();
+        for (int i = 0; i < PRIORITIES; i++) {
+            perTag[i] = new Bucket(i, tag, burst, now);
+        }
+        return perTag;
+    }
+
+    private final class Bucket {
+        private final int priority;
+        private final String tag;
+        private double tokens;
+        private long refilledAt;
+        private long suppressed;
+        private long reportedAt;
+        private boolean flushScheduled;
+
+        Bucket(int priority, String tag, double tokens, long now) {
+            this.priority = priority;
+            this.tag = tag;
+            this.tokens = tokens;
+            this.refilledAt = now;
+            this.reportedAt = now;
+        }
+
+        synchronized long acquire(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                suppressed++;
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    TIMER.schedule(this::flush, Math.max(0, reportedAt + SUMMARY_INTERVAL_NANOS - now), TimeUnit.NANOSECONDS);
+                }
+                return SUPPRESSED;
+            }
+            tokens -= 1;
+            if (suppressed == 0 || now - reportedAt < SUMMARY_INTERVAL_NANOS) {
+                return 0;
+            }
+            long count = suppressed;
+            suppressed = 0;
+            reportedAt = now;
+            return count;
+        }
+
+        /**
+         * Reports the records suppressed since the last report, unless a record let through has
+         * reported them meanwhile.
+         */
+        void flush() {
+            long count;
+            synchronized (this) {
+                flushScheduled = false;
+                count = suppressed;
+                if (count == 0) {
+                    return;
+                }
+                suppressed = 0;
+                reportedAt = System.nanoTime();
+            }
+            try {
+                reporter.report(priority, tag, count);
+            } catch (Throwable ignored) {
+                // Keep the timer alive for other buckets
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.libxposed.reference;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * Log pipeline of the reference framework: the priority filter, the rate limit and the sink. It is
+ * kept apart from {@link ReferenceFramework} so that hook slots, which are stored with the hooked
+ * classes, can log without keeping the framework reachable.
+ */
+final class LogWriter {
+    private final ReferenceFramework.LogSink sink;
+    volatile int minPriority = Log.VERBOSE;
+    private volatile LogRateLimiter rateLimiter;
+
+    LogWriter(ReferenceFramework.LogSink sink) {
+        this.sink = sink;
+        setRateLimit(ReferenceFramework.DEFAULT_LOG_RATE_LIMIT, ReferenceFramework.DEFAULT_LOG_RATE_LIMIT);
+    }
+
+    /**
+     * @param ratePerSecond The number of records per second written for each tag and priority, or
+     *                      {@code 0} to disable rate limiting
+     */
+    void setRateLimit(int ratePerSecond, int burst) {
+        rateLimiter = ratePerSecond == 0 ? null : new LogRateLimiter(ratePerSecond, burst,
+                (priority, tag, suppressed) -> sink.write(priority, tag, summary(suppressed), null));
+    }
+
+    private static String summary(long suppressed) {
+        return suppressed + " messages suppressed";
+    }
+
+    boolean isLoggable(int priority) {
+        return priority >= minPriority;
+    }
+
+    void log(int priority, String tag, String msg, Throwable tr) {
+        long suppressed = admit(priority, tag);
+        if (suppressed == LogRateLimiter.SUPPRESSED) {
+            return;
+        }
+        if (suppressed > 0) {
+            sink.write(priority, tag, summary(suppressed), null);
+        }
+        sink.write(priority, tag, msg, tr);
+    }
+
+    /**
+     * Filters a batch of records and hands the remaining ones to the sink at once.
+     */
+    void log(List<? extends XposedInterface.LogRecord> records) {
+        var batch = new ArrayList<XposedInterface.LogRecord>(records.size());
+        for (var record : records) {
+            long suppressed = admit(record.getPriority(), record.getTag());
+            if (suppressed == LogRateLimiter.SUPPRESSED) {
+                continue;
+            }
+            if (suppressed > 0) {
+                batch.add(new Record(record.getPriority(), record.getTag(), summary(suppressed)));
+            }
+            batch.add(record);
+        }
+        if (!batch.isEmpty()) {
+            sink.write(batch);
+        }
+    }
+
+    /**
+     * Applies the priority filter and the rate limit to a record.
+     *
+     * @return {@link LogRateLimiter#SUPPRESSED} if the record must be dropped, otherwise the number of
+     * suppressed records to report before it
+     */
+    private long admit(int priority, String tag) {
+        if (!isLoggable(priority)) {
+            return LogRateLimiter.SUPPRESSED;
+        }
+        var limiter = rateLimiter;
+        return limiter == null ? 0 : limiter.acquire(priority, tag);
+    }
+
+    private record Record(int priority, String tag, String msg) implements XposedInterface.LogRecord {
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String getTag() {
+            return tag;
+        }
+
+        @NonNull
+        @Override
+        public String getMessage() {
+            return msg;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.libxposed.reference;
+
+import androidx.annotation.NonNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * Immutable method invoker. Instances are cached per {@link HookSlot} and type.
+ */
+final class MethodInvoker implements XposedInterface.Invoker<MethodInvoker, Method> {
+    private final HookSlot slot;
+    private final Type type;
+    private final int maxPriority;
+    private final MethodHandle handle;
+
+    MethodInvoker(HookSlot slot, Type type) {
+        this.slot = slot;
+        this.type = type;
+        if (type instanceof Type.Chain chain) {
+            this.maxPriority = chain.maxPriority();
+            this.handle = slot.dispatcher(maxPriority);
+        } else {
+            this.maxPriority = 0;
+            this.handle = slot.direct;
+        }
+    }
+
+    private void checkCall(Object thisObject, Object[] args) {
+        if (!slot.isStatic) {
+            if (thisObject == null) {
+                throw new NullPointerException("thisObject is null for " + slot.executable);
+            }
+            if (!slot.executable.getDeclaringClass().isInstance(thisObject)) {
+                throw new IllegalArgumentException("thisObject is not an instance of " + slot.executable.getDeclaringClass());
+            }
+        }
+    }
+
+    private Object call(MethodHandle origin, Object thisObject, Object[] args) throws InvocationTargetException {
+        checkCall(thisObject, args);
+        args = slot.checkArgs(args);
+        try {
+            if (type instanceof Type.Origin) {
+                return (Object) origin.invokeExact(thisObject, args);
+            }
+            return slot.dispatch(maxPriority, origin, thisObject, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    @NonNull
+    @Override
+    public MethodInvoker setType(@NonNull Type type) {
+        return (MethodInvoker) slot.invoker(type);
+    }
+
+    @Override
+    public Object invoke(Object thisObject, Object... args) throws InvocationTargetException {
+        return call(slot.origin, thisObject, args);
+    }
+
+    @Override
+    public Object invokeSpecial(@NonNull Object thisObject, Object... args) throws InvocationTargetException {
+        return call(slot.special(), thisObject, args);
+    }
+
+    @NonNull
+    @Override
+    public MethodHandle getMethodHandle() {
+        return handle;
+    }
+}
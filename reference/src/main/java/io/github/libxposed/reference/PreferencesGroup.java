@@ -0,0 +1,394 @@
+package io.github.libxposed.reference;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.api.RemotePreferencesSnapshot;
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * In-memory remote preferences group. Commits publish the new values with a single volatile write, so
+ * readers never see a partially applied commit.
+ *
+ * <p>In shared mode the values live in a {@link PreferencesRegion} and the
+ * {@link SharedPreferences} view decodes them straight from it. {@link RemotePreferencesSnapshot} has
+ * no region-backed form, so the first snapshot requested after a commit, including the one passed to
+ * listeners, decodes the whole region onto the heap and is kept until the next commit. Otherwise the
+ * values live in a {@link RemotePreferencesSnapshot}.</p>
+ */
+final class PreferencesGroup {
+    private final ReferenceFramework framework;
+    private final String name;
+    /**
+     * How long a listener delivery waits for further commits after the first change it carries, so
+     * that the commits of a burst are coalesced regardless of how fast the executor gets to run.
+     */
+    private static final long COALESCE_WINDOW_MILLIS = 20;
+
+    private final ScheduledExecutorService executor;
+    private final CopyOnWriteArrayList<SharedPreferences.OnSharedPreferenceChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final SharedPreferences view;
+    private volatile RemotePreferencesSnapshot snapshot = RemotePreferencesSnapshot.of(0, Collections.emptyMap());
+    private volatile PreferencesRegion region;
+
+    PreferencesGroup(ReferenceFramework framework, String name, ScheduledExecutorService executor, boolean shared) throws IOException {
+        this.framework = framework;
+        this.name = name;
+        this.executor = executor;
+        if (shared) {
+            region = PreferencesRegion.publish(0, Collections.emptyMap());
+            view = new RegionView();
+        } else {
+            view = new View();
+        }
+    }
+
+    RemotePreferencesSnapshot snapshot() {
+        var region = this.region;
+        var snapshot = this.snapshot;
+        if (region == null || snapshot.getGeneration() == region.generation()) {
+            return snapshot;
+        }
+        synchronized (this) {
+            region = this.region;
+            if (this.snapshot.getGeneration() != region.generation()) {
+                this.snapshot = RemotePreferencesSnapshot.of(region.generation(), region.getAll());
+            }
+            return this.snapshot;
+        }
+    }
+
+    SharedPreferences view() {
+        return view;
+    }
+
+    SharedPreferences.Editor edit() {
+        return new Editor();
+    }
+
+    void register(XposedInterface.RemotePreferencesListener listener) {
+        synchronized (subscriptions) {
+            for (var subscription : subscriptions) {
+                if (subscription.listener == listener) {
+                    return;
+                }
+            }
+            subscriptions.add(new Subscription(listener));
+        }
+    }
+
+    void unregister(XposedInterface.RemotePreferencesListener listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    private boolean commit(Map<String, Object> puts, boolean clear) {
+        var changed = new LinkedHashSet<String>();
+        synchronized (this) {
+            var region = this.region;
+            long generation = region == null ? snapshot.getGeneration() : region.generation();
+            var before = region == null ? snapshot.getAll() : region.getAll();
+            var after = clear ? new HashMap<String, Object>() : new HashMap<String, Object>(before);
+            for (var entry : puts.entrySet()) {
+                if (entry.getValue() == null) {
+                    after.remove(entry.getKey());
+                } else {
+                    after.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (var key : before.keySet()) {
+                if (!Objects.equals(before.get(key), after.get(key))) {
+                    changed.add(key);
+                }
+            }
+            for (var key : after.keySet()) {
+                if (!before.containsKey(key)) {
+                    changed.add(key);
+                }
+            }
+            if (changed.isEmpty()) {
+                return true;
+            }
+            if (region == null) {
+                snapshot = RemotePreferencesSnapshot.of(generation + 1, after);
+            } else {
+                try {
+                    this.region = PreferencesRegion.publish(generation + 1, after);
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        }
+        for (var subscription : subscriptions) {
+            subscription.post(changed);
+        }
+        for (var key : changed) {
+            for (var listener : listeners) {
+                listener.onSharedPreferenceChanged(view, key);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Batched listener registration. The first change schedules a delivery after
+     * {@link #COALESCE_WINDOW_MILLIS}, and keys changed until it runs are merged into it, which
+     * coalesces bursts of commits into one call.
+     */
+    private final class Subscription {
+        final XposedInterface.RemotePreferencesListener listener;
+        private LinkedHashSet<String> pending = new LinkedHashSet<>();
+        private boolean scheduled;
+
+        Subscription(XposedInterface.RemotePreferencesListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized void post(Set<String> keys) {
+            pending.addAll(keys);
+            if (!scheduled) {
+                scheduled = true;
+                executor.schedule(this::deliver, COALESCE_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void deliver() {
+            Set<String> keys;
+            synchronized (this) {
+                keys = Collections.unmodifiableSet(pending);
+                pending = new LinkedHashSet<>();
+                scheduled = false;
+            }
+            if (!subscriptions.contains(this)) {
+                return;
+            }
+            try {
+                listener.onRemotePreferencesChanged(name, snapshot(), keys);
+            } catch (Throwable t) {
+                framework.log(Log.ERROR, ReferenceFramework.TAG, "Remote preferences listener of " + name + " failed", t);
+            }
+        }
+    }
+
+    /**
+     * Read-only view for hooked apps, reading from the latest snapshot.
+     */
+    private final class View implements SharedPreferences {
+        @Override
+        public Map<String, ?> getAll() {
+            return snapshot.getAll();
+        }
+
+        @Nullable
+        @Override
+        public String getString(String key, @Nullable String defValue) {
+            return snapshot.getString(key, defValue);
+        }
+
+        @Nullable
+        @Override
+        public Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+            return snapshot.getStringSet(key, defValues);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return snapshot.getInt(key, defValue);
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return snapshot.getLong(key, defValue);
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return snapshot.getFloat(key, defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return snapshot.getBoolean(key, defValue);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return snapshot.contains(key);
+        }
+
+        @Override
+        public SharedPreferences.Editor edit() {
+            throw new UnsupportedOperationException("Remote preferences are read-only in hooked apps");
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            listeners.addIfAbsent(listener);
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Read-only view for hooked apps in shared mode, decoding values from the latest region.
+     */
+    private final class RegionView implements SharedPreferences {
+        @Override
+        public Map<String, ?> getAll() {
+            return region.getAll();
+        }
+
+        @Nullable
+        @Override
+        public String getString(String key, @Nullable String defValue) {
+            return region.getString(key, defValue);
+        }
+
+        @Nullable
+        @Override
+        public Set<String> getStringSet(String key, @Nullable Set<String> defValues) {
+            return region.getStringSet(key, defValues);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return region.getInt(key, defValue);
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return region.getLong(key, defValue);
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return region.getFloat(key, defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return region.getBoolean(key, defValue);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return region.contains(key);
+        }
+
+        @Override
+        public SharedPreferences.Editor edit() {
+            throw new UnsupportedOperationException("Remote preferences are read-only in hooked apps");
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            listeners.addIfAbsent(listener);
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+            listeners.remove(listener);
+        }
+    }
+
+    /**
+     * Editor standing in for the module's settings UI. A {@code null} value marks a removal.
+     */
+    private final class Editor implements SharedPreferences.Editor {
+        private final HashMap<String, Object> puts = new HashMap<>();
+        private boolean clear;
+
+        private synchronized SharedPreferences.Editor put(String key, Object value) {
+            puts.put(Objects.requireNonNull(key), value);
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putString(String key, @Nullable String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putStringSet(String key, @Nullable Set<String> values) {
+            if (values == null) {
+                return put(key, null);
+            }
+            var copy = new HashSet<String>(values.size());
+            for (Object element : values) {
+                // Sets reaching here through raw types may hold anything
+                if (!(element instanceof String string)) {
+                    throw new IllegalArgumentException("String set " + key + " contains "
+                            + (element == null ? "null" : element.getClass().getName()));
+                }
+                copy.add(string);
+            }
+            return put(key, copy);
+        }
+
+        @Override
+        public SharedPreferences.Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor remove(String key) {
+            return put(key, null);
+        }
+
+        @Override
+        public synchronized SharedPreferences.Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            Map<String, Object> changes;
+            boolean clearFirst;
+            synchronized (this) {
+                changes = new HashMap<>(puts);
+                clearFirst = clear;
+                puts.clear();
+                clear = false;
+            }
+            return PreferencesGroup.this.commit(changes, clearFirst);
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package io.github.libxposed.reference;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remote preferences group published in a read-only shared memory region. Values are read straight
+ * from the mapping, so processes mapping the same region share one copy of the group.
+ *
+ * <p>Layout, big-endian: a header of {@code int} magic, {@code int} version, {@code long} generation,
+ * {@code int} slot count (a power of two) and {@code int} entry count; then the slots of an
+ * open-addressing hash table, each an {@code int} {@link String#hashCode()} of the key and the
+ * {@code int} offset of its entry ({@code 0} if empty); then the entries. An entry is the key as an
+ * {@code int} length and UTF-8 bytes, a type byte and the value: {@code int}, {@code long},
+ * {@code float} bits, a {@code boolean} byte, a length-prefixed UTF-8 string, or an {@code int}
+ * count followed by that many strings.</p>
+ *
+ * <p>On devices the region is a sealed memfd handed to every scoped process. Here a file on tmpfs,
+ * deleted right after mapping, stands in for it.</p>
+ */
+final class PreferencesRegion {
+    private static final int MAGIC = 0x58505246;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int SLOT_SIZE = 8;
+
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_STRING = 5;
+    private static final byte TYPE_STRING_SET = 6;
+
+    private final ByteBuffer buffer;
+    private final long generation;
+    private final int mask;
+
+    PreferencesRegion(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a preferences region");
+        }
+        this.buffer = buffer;
+        this.generation = buffer.getLong(8);
+        this.mask = buffer.getInt(16) - 1;
+    }
+
+    /**
+     * Encodes the values into a new region and maps it read-only.
+     */
+    static PreferencesRegion publish(long generation, Map<String, ?> values) throws IOException {
+        var bytes = encode(generation, values);
+        var shm = new File("/dev/shm");
+        var file = shm.isDirectory() && shm.canWrite()
+                ? Files.createTempFile(shm.toPath(), "xposed-prefs", null)
+                : Files.createTempFile("xposed-prefs", null);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes));
+            return new PreferencesRegion(channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes.length));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    static byte[] encode(long generation, Map<String, ?> values) throws IOException {
+        var keys = new ArrayList<String>(values.size());
+        for (var entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                keys.add(entry.getKey());
+            }
+        }
+        int slots = Integer.highestOneBit(Math.max(1, keys.size() * 2 - 1)) << 1;
+        int[] hashes = new int[slots];
+        int[] offsets = new int[slots];
+        var entries = new ByteArrayOutputStream();
+        var out = new DataOutputStream(entries);
+        int base = HEADER_SIZE + slots * SLOT_SIZE;
+        for (var key : keys) {
+            int hash = key.hashCode();
+            int slot = hash & (slots - 1);
+            while (offsets[slot] != 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            hashes[slot] = hash;
+            offsets[slot] = base + out.size();
+            writeString(out, key);
+            var value = values.get(key);
+            if (value instanceof Integer i) {
+                out.writeByte(TYPE_INT);
+                out.writeInt(i);
+            } else if (value instanceof Long l) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong(l);
+            } else if (value instanceof Float f) {
+                out.writeByte(TYPE_FLOAT);
+                out.writeInt(Float.floatToRawIntBits(f));
+            } else if (value instanceof Boolean b) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean(b);
+            } else if (value instanceof String s) {
+                out.writeByte(TYPE_STRING);
+                writeString(out, s);
+            } else if (value instanceof Set<?> set) {
+                out.writeByte(TYPE_STRING_SET);
+                out.writeInt(set.size());
+                for (var element : set) {
+                    writeString(out, (String) element);
+                }
+            } else {
+                throw new IllegalArgumentException("Unsupported type of " + key + ": " + value.getClass().getName());
+            }
+        }
+        var region = ByteBuffer.allocate(base + out.size());
+        region.putInt(MAGIC).putInt(VERSION).putLong(generation).putInt(slots).putInt(keys.size());
+        for (int slot = 0; slot < slots; slot++) {
+            region.putInt(hashes[slot]).putInt(offsets[slot]);
+        }
+        region.put(entries.toByteArray());
+        return region.array();
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * Finds the value of a key without decoding other entries or allocating.
+     *
+     * @return The offset of the type byte of the value, or {@code -1} if the key is absent
+     */
+    private int find(String key) {
+        int hash = key.hashCode();
+        int slot = hash & mask;
+        for (; ; ) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            int offset = buffer.getInt(position + 4);
+            if (offset == 0) {
+                return -1;
+            }
+            if (buffer.getInt(position) == hash) {
+                int length = buffer.getInt(offset);
+                if (utf8Equals(offset + 4, length, key)) {
+                    return offset + 4 + length;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int find(String key, byte type) {
+        int offset = find(key);
+        if (offset >= 0 && buffer.get(offset) != type) {
+            throw new ClassCastException("Value of " + key + " has a different type");
+        }
+        return offset;
+    }
+
+    /**
+     * Compares UTF-8 bytes in the region with a string, encoding it on the fly the way
+     * {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    private boolean utf8Equals(int offset, int length, String key) {
+        int end = offset + length;
+        int position = offset;
+        int count = key.length();
+        for (int i = 0; i < count; i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                if (position >= end || buffer.get(position++) != (byte) c) {
+                    return false;
+                }
+            } else if (c < 0x800) {
+                if (position + 2 > end
+                        || buffer.get(position++) != (byte) (0xC0 | (c >> 6))
+                        || buffer.get(position++) != (byte) (0x80 | (c & 0x3F))) {
+                    return false;
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < count && Character.isLowSurrogate(key.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, key.charAt(++i));
+                if (position + 4 > end
+                        || buffer.get(position++) != (byte) (0xF0 | (codePoint >> 18))
+                        || buffer.get(position++) != (byte) (0x80 | ((codePoint >> 12) & 0x3F))
+                        || buffer.get(position++) != (byte) (0x80 | ((codePoint >> 6) & 0x3F))
+                        || buffer.get(position++) != (byte) (0x80 | (codePoint & 0x3F))) {
+                    return false;
+                }
+            } else if (Character.isSurrogate(c)) {
+                if (position >= end || buffer.get(position++) != '?') {
+                    return false;
+                }
+            } else {
+                if (position + 3 > end
+                        || buffer.get(position++) != (byte) (0xE0 | (c >> 12))
+                        || buffer.get(position++) != (byte) (0x80 | ((c >> 6) & 0x3F))
+                        || buffer.get(position++) != (byte) (0x80 | (c & 0x3F))) {
+                    return false;
+                }
+            }
+        }
+        return position == end;
+    }
+
+    private String readString(int offset) {
+        int length = buffer.getInt(offset);
+        var bytes = new byte[length];
+        var view = buffer.duplicate();
+        view.position(offset + 4);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Set<String> readStringSet(int offset) {
+        int count = buffer.getInt(offset);
+        var set = new HashSet<String>(count * 2);
+        int position = offset + 4;
+        for (int i = 0; i < count; i++) {
+            set.add(readString(position));
+            position += 4 + buffer.getInt(position);
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    private Object readValue(int offset) {
+        return switch (buffer.get(offset)) {
+            case TYPE_INT -> buffer.getInt(offset + 1);
+            case TYPE_LONG -> buffer.getLong(offset + 1);
+            case TYPE_FLOAT -> buffer.getFloat(offset + 1);
+            case TYPE_BOOLEAN -> buffer.get(offset + 1) != 0;
+            case TYPE_STRING -> readString(offset + 1);
+            case TYPE_STRING_SET -> readStringSet(offset + 1);
+            default -> throw new IllegalStateException("Corrupted preferences region");
+        };
+    }
+
+    Map<String, Object> getAll() {
+        var all = new HashMap<String, Object>();
+        for (int slot = 0; slot <= mask; slot++) {
+            int offset = buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4);
+            if (offset != 0) {
+                all.put(readString(offset), readValue(offset + 4 + buffer.getInt(offset)));
+            }
+        }
+        return all;
+    }
+
+    boolean contains(String key) {
+        return find(key) >= 0;
+    }
+
+    int getInt(String key, int defValue) {
+        int offset = find(key, TYPE_INT);
+        return offset < 0 ? defValue : buffer.getInt(offset + 1);
+    }
+
+    long getLong(String key, long defValue) {
+        int offset = find(key, TYPE_LONG);
+        return offset < 0 ? defValue : buffer.getLong(offset + 1);
+    }
+
+    float getFloat(String key, float defValue) {
+        int offset = find(key, TYPE_FLOAT);
+        return offset < 0 ? defValue : buffer.getFloat(offset + 1);
+    }
+
+    boolean getBoolean(String key, boolean defValue) {
+        int offset = find(key, TYPE_BOOLEAN);
+        return offset < 0 ? defValue : buffer.get(offset + 1) != 0;
+    }
+
+    String getString(String key, String defValue) {
+        int offset = find(key, TYPE_STRING);
+        return offset < 0 ? defValue : readString(offset + 1);
+    }
+
+    Set<String> getStringSet(String key, Set<String> defValue) {
+        int offset = find(key, TYPE_STRING_SET);
+        return offset < 0 ? defValue : readStringSet(offset + 1);
+    }
+}
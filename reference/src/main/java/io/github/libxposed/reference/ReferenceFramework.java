@@ -0,0 +1,642 @@
+package io.github.libxposed.reference;
+
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import io.github.libxposed.api.PreferenceKey;
+import io.github.libxposed.api.RemotePreferencesSnapshot;
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.api.error.HookFailedError;
+
+/**
+ * In-memory implementation of {@link XposedInterface} running on a plain JVM, for testing modules and
+ * measuring API overhead off-device.
+ *
+ * <p>The JVM cannot redirect arbitrary calls, so hooks only intercept calls made through the hook
+ * chain: {@link Invoker}s of type {@link Invoker.Type.Chain}, their method handles, proxies created
+ * by {@link #newProxy(Class, Object)}, and class initialization through {@link #initializeClass(Class)}.
+ * Arguments reach the chain boxed in an {@code Object[]}; results of primitive specialized hookers
+ * stay unboxed until they leave the chain.</p>
+ *
+ * <p>Other differences from on-device frameworks:</p>
+ * <ul>
+ *     <li>The JVM only runs constructors on objects it has just allocated. The hooks of a
+ *     constructor therefore run before the object exists: {@link Chain#getThisObject()} returns
+ *     {@code null}, and the innermost link allocates the object and returns it from
+ *     {@link Chain#proceed()}. Hookers that do not proceed must return an instance themselves.
+ *     Constructor invokers cannot initialize existing objects, so their {@code invoke},
+ *     {@code invokeSpecial} and {@code getMethodHandle} methods, and {@code newInstanceSpecial} with a
+ *     proper subclass, throw {@link UnsupportedOperationException}.</li>
+ *     <li>{@link Chain#getExecutable()} of class initializer hooks returns the same placeholder
+ *     method for all classes.</li>
+ *     <li>Deferred hooks are installed immediately, loading but not initializing their class.</li>
+ *     <li>Executables are resolved by descriptor through reflection.</li>
+ *     <li>Remote preferences are kept in memory and edited with
+ *     {@link #editRemotePreferences(String)}.</li>
+ *     <li>Remote files are kept in a temporary directory and changed with
+ *     {@link #writeRemoteFile(String, byte[])} and {@link #deleteRemoteFile(String)}. Every change
+ *     advances {@link #getRemoteFilesGeneration()}.</li>
+ * </ul>
+ */
+public class ReferenceFramework implements XposedInterface {
+    static final String TAG = "ReferenceFramework";
+
+    /**
+     * The default of the {@code logRateLimit} and {@code logRateBurst} properties in {@code module.prop}.
+     */
+    public static final int DEFAULT_LOG_RATE_LIMIT = 100;
+
+    /**
+     * Destination of the log records written by the framework, standing in for logcat.
+     */
+    @FunctionalInterface
+    public interface LogSink {
+        /**
+         * Writes a log record that passed the priority filter and the rate limit.
+         *
+         * @param priority The log priority, see {@link android.util.Log}
+         * @param tag      The log tag
+         * @param msg      The log message
+         * @param tr       The throwable to log with the message
+         */
+        void write(int priority, @Nullable String tag, @NonNull String msg, @Nullable Throwable tr);
+
+        /**
+         * Writes a batch of log records that passed the priority filter and the rate limit, as
+         * received through {@link XposedInterface#log(List)}. Writes the records one by one by default.
+         *
+         * @param records The records to write, only valid during the call
+         */
+        default void write(@NonNull List<? extends LogRecord> records) {
+            for (var record : records) {
+                write(record.getPriority(), record.getTag(), record.getMessage(), record.getThrowable());
+            }
+        }
+
+        /**
+         * Creates a sink printing records to a stream like {@code logcat -v tag} does, each followed
+         * by the stack trace of its throwable. Every record is printed with a single call, so records
+         * from concurrent threads do not interleave.
+         *
+         * @param out The stream to print to
+         * @return The sink
+         */
+        @NonNull
+        static LogSink printTo(@NonNull PrintStream out) {
+            return (priority, tag, msg, tr) -> {
+                var text = new StringWriter();
+                var writer = new PrintWriter(text);
+                writer.append("VDIWEA".charAt(Math.max(0, Math.min(priority - 2, 5)))).append('/')
+                        .append(tag).append(": ").println(msg);
+                if (tr != null) {
+                    tr.printStackTrace(writer);
+                }
+                writer.flush();
+                out.print(text);
+            };
+        }
+    }
+
+    private final Slots slots;
+    private final ClassInitializers classInitializers;
+    private final ConcurrentHashMap<String, PreferencesGroup> preferences = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService preferencesExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        var thread = new Thread(r, "XposedPreferences");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final LogWriter logWriter;
+    private final RemoteFiles remoteFiles = new RemoteFiles();
+    private volatile boolean sharedPreferences;
+    private volatile EventLog eventLog;
+    private volatile ApplicationInfo moduleApplicationInfo;
+
+    /**
+     * Creates a framework whose {@link ExceptionMode#DEFAULT} resolves to {@link ExceptionMode#PROTECTIVE},
+     * printing log records to {@link System#err}.
+     */
+    public ReferenceFramework() {
+        this(ExceptionMode.PROTECTIVE);
+    }
+
+    /**
+     * Creates a framework with the given global exception mode, as configured by {@code module.prop}
+     * on devices. Log records are printed to {@link System#err}.
+     *
+     * @param defaultExceptionMode The mode {@link ExceptionMode#DEFAULT} resolves to
+     */
+    public ReferenceFramework(@NonNull ExceptionMode defaultExceptionMode) {
+        this(defaultExceptionMode, LogSink.printTo(System.err));
+    }
+
+    /**
+     * Creates a framework with the given global exception mode, writing log records to the given sink.
+     *
+     * @param defaultExceptionMode The mode {@link ExceptionMode#DEFAULT} resolves to
+     * @param logSink              The destination of log records, see {@link LogSink#printTo(PrintStream)}
+     */
+    public ReferenceFramework(@NonNull ExceptionMode defaultExceptionMode, @NonNull LogSink logSink) {
+        if (defaultExceptionMode == ExceptionMode.DEFAULT) {
+            defaultExceptionMode = ExceptionMode.PROTECTIVE;
+        }
+        this.logWriter = new LogWriter(Objects.requireNonNull(logSink));
+        this.slots = new Slots(logWriter, defaultExceptionMode);
+        this.classInitializers = new ClassInitializers(logWriter, defaultExceptionMode);
+    }
+
+    /**
+     * Creates a proxy implementing the given interface, whose calls go through the hook chains of the
+     * methods {@code target} implements them with. This is how code under test reaches hooked methods.
+     *
+     * @param iface  The interface to implement
+     * @param target The object the calls are delegated to
+     * @param <T>    The type of the interface
+     * @return The proxy
+     * @throws IllegalArgumentException if {@code iface} is not an interface
+     */
+    @NonNull
+    public <T> T newProxy(@NonNull Class<T> iface, @NonNull T target) {
+        if (!iface.isInterface()) {
+            throw new IllegalArgumentException(iface + " is not an interface");
+        }
+        var implementations = new ConcurrentHashMap<Method, HookSlot>();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(target, args);
+            }
+            var slot = implementations.computeIfAbsent(method, m -> {
+                try {
+                    return slotFor(target.getClass().getMethod(m.getName(), m.getParameterTypes()));
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            return slot.dispatch(PRIORITY_HIGHEST, slot.origin, target, args == null ? new Object[0] : args);
+        };
+        return iface.cast(Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[]{iface}, handler));
+    }
+
+    /**
+     * Initializes a class through the hooks of its class initializer, standing in for the first use of
+     * the class. The JVM initializes classes without notice, so hooks installed by
+     * {@link #hookClassInitializer(Class)} only run when the class is initialized through this method.
+     * Like class initialization, the hooks run at most once per class, even if the initialization fails;
+     * later calls return immediately. If the JVM has already initialized the class, the hooks still run,
+     * but proceeding does nothing.
+     *
+     * @param type The class to initialize
+     * @throws ExceptionInInitializerError if the class initializer or a hooker throws an exception
+     */
+    public void initializeClass(@NonNull Class<?> type) {
+        var initializer = classInitializers.get(type);
+        synchronized (initializer) {
+            if (initializer.initialized) {
+                return;
+            }
+            initializer.initialized = true;
+            try {
+                initializer.slot.dispatch(PRIORITY_HIGHEST, initializer.slot.origin, null, new Object[0]);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ExceptionInInitializerError(t);
+            }
+        }
+    }
+
+    /**
+     * Sets the application info returned by {@link #getModuleApplicationInfo()}, which is empty by default.
+     *
+     * @param info The application info of the module
+     */
+    public void setModuleApplicationInfo(@NonNull ApplicationInfo info) {
+        this.moduleApplicationInfo = Objects.requireNonNull(info);
+    }
+
+    /**
+     * Creates or replaces a file in the module's shared data directory, like the module app does on
+     * devices. Descriptors opened earlier keep the old content.
+     *
+     * @param name    The file name, without path separators
+     * @param content The new content of the file
+     * @throws IllegalArgumentException if the name is not a valid file name
+     * @throws IOException              if the file cannot be written
+     */
+    public void writeRemoteFile(@NonNull String name, @NonNull byte[] content) throws IOException {
+        remoteFiles.write(name, content);
+    }
+
+    /**
+     * Deletes a file from the module's shared data directory.
+     *
+     * @param name The file name
+     * @return {@code true} if the file existed
+     */
+    public boolean deleteRemoteFile(@NonNull String name) {
+        return remoteFiles.delete(name);
+    }
+
+    /**
+     * Sets the lowest priority written to the log, like {@code setprop log.tag} does on devices.
+     * All priorities are written by default.
+     *
+     * @param priority The lowest log priority to write, see {@link android.util.Log}
+     */
+    public void setMinLogPriority(int priority) {
+        logWriter.minPriority = priority;
+    }
+
+    /**
+     * Sets the log rate limit, as configured by the {@code logRateLimit} and {@code logRateBurst}
+     * properties of {@code module.prop} on devices. Both default to {@link #DEFAULT_LOG_RATE_LIMIT}.
+     *
+     * @param ratePerSecond The number of records per second written for each tag and priority, or
+     *                      {@code 0} to disable rate limiting
+     * @param burst         The number of records written at once after a quiet period
+     * @throws IllegalArgumentException if {@code ratePerSecond} is negative, or if {@code burst} is
+     *                                  not positive while rate limiting is enabled
+     */
+    public void setLogRateLimit(int ratePerSecond, int burst) {
+        if (ratePerSecond < 0) {
+            throw new IllegalArgumentException("Invalid rate limit: " + ratePerSecond);
+        }
+        logWriter.setRateLimit(ratePerSecond, burst);
+    }
+
+    /**
+     * Sets the stream structured log records from {@link #logEvent(int, String)} are written to, in
+     * the format read by {@link EventLogReader}. Records are discarded by default. Each call starts a
+     * new log, beginning with a header; the stream is neither buffered nor closed by the framework.
+     *
+     * @param out The stream to write to, or {@code null} to discard records
+     */
+    public void setEventOutput(@Nullable OutputStream out) {
+        this.eventLog = out == null ? null : new EventLog(this, out);
+    }
+
+    /**
+     * Edits a remote preferences group the way the module's settings UI does on devices. Each commit
+     * publishes a new snapshot of the group and notifies listeners registered in hooked apps.
+     *
+     * @param group Group name
+     * @return The editor of the group
+     */
+    @NonNull
+    public SharedPreferences.Editor editRemotePreferences(@NonNull String group) {
+        return preferencesGroup(group).edit();
+    }
+
+    /**
+     * Sets whether remote preferences groups are published in read-only shared memory, as configured
+     * by the {@code sharedRemotePreferences} property of {@code module.prop} on devices. A file on
+     * tmpfs stands in for the memfd used on devices. Only affects groups first used after the call.
+     *
+     * <p>Only the {@link SharedPreferences} view reads from shared memory. Snapshots and listener
+     * callbacks still decode the whole group onto the heap once per commit.</p>
+     *
+     * @param shared {@code true} to publish groups in shared memory
+     */
+    public void setSharedRemotePreferences(boolean shared) {
+        this.sharedPreferences = shared;
+    }
+
+    private PreferencesGroup preferencesGroup(String group) {
+        return preferences.computeIfAbsent(group, g -> {
+            try {
+                return new PreferencesGroup(this, g, preferencesExecutor, sharedPreferences);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot publish remote preferences group " + g, e);
+            }
+        });
+    }
+
+    private HookSlot slotFor(Executable executable) {
+        return slots.get(executable.getDeclaringClass())
+                .computeIfAbsent(executable, e -> new HookSlot(slots.log, slots.defaultExceptionMode, e));
+    }
+
+    /**
+     * Hook slots of the executables declared by each class. Slots are stored with their class rather
+     * than in a map keyed by executable, so neither the executable nor its class loader is kept
+     * reachable by the framework. Slots do not reference the framework in turn, which would otherwise
+     * stay reachable for as long as any class it touched.
+     */
+    private static final class Slots extends ClassValue<ConcurrentHashMap<Executable, HookSlot>> {
+        final LogWriter log;
+        final ExceptionMode defaultExceptionMode;
+
+        Slots(LogWriter log, ExceptionMode defaultExceptionMode) {
+            this.log = log;
+            this.defaultExceptionMode = defaultExceptionMode;
+        }
+
+        @Override
+        protected ConcurrentHashMap<Executable, HookSlot> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    }
+
+    private static final class ClassInitializers extends ClassValue<ClassInitializer> {
+        private final LogWriter log;
+        private final ExceptionMode defaultExceptionMode;
+
+        ClassInitializers(LogWriter log, ExceptionMode defaultExceptionMode) {
+            this.log = log;
+            this.defaultExceptionMode = defaultExceptionMode;
+        }
+
+        @Override
+        protected ClassInitializer computeValue(Class<?> type) {
+            return new ClassInitializer(new HookSlot(log, defaultExceptionMode, type));
+        }
+    }
+
+    private static final class ClassInitializer {
+        final HookSlot slot;
+        boolean initialized;
+
+        ClassInitializer(HookSlot slot) {
+            this.slot = slot;
+        }
+    }
+
+    private Executable resolve(ClassLoader classLoader, String className, String methodName, String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        MethodType type;
+        try {
+            type = MethodType.fromMethodDescriptorString(descriptor, classLoader);
+        } catch (TypeNotPresentException e) {
+            throw new ClassNotFoundException(e.typeName(), e);
+        }
+        var clazz = Class.forName(className, false, classLoader);
+        if (methodName.equals("<init>")) {
+            if (type.returnType() != void.class) {
+                throw new IllegalArgumentException("Constructor descriptor must return void: " + descriptor);
+            }
+            return clazz.getDeclaredConstructor(type.parameterArray());
+        }
+        if (methodName.isEmpty() || methodName.indexOf('<') >= 0) {
+            throw new IllegalArgumentException("Invalid method name: " + methodName);
+        }
+        for (var method : clazz.getDeclaredMethods()) {
+            if (method.getName().equals(methodName) && method.getReturnType() == type.returnType()
+                    && Arrays.equals(method.getParameterTypes(), type.parameterArray())) {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(className + "." + methodName + descriptor);
+    }
+
+    @NonNull
+    @Override
+    public String getFrameworkName() {
+        return "libxposed reference";
+    }
+
+    @NonNull
+    @Override
+    public String getFrameworkVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public long getFrameworkVersionCode() {
+        return 1;
+    }
+
+    @Override
+    public long getFrameworkProperties() {
+        return 0;
+    }
+
+    @NonNull
+    @Override
+    public HookBuilder hook(@NonNull Executable origin) {
+        if (Modifier.isAbstract(origin.getModifiers())) {
+            throw new IllegalArgumentException("Cannot hook abstract method " + origin);
+        }
+        if (origin.getDeclaringClass().getPackage() == ReferenceFramework.class.getPackage()) {
+            throw new IllegalArgumentException("Cannot hook framework internal executable " + origin);
+        }
+        try {
+            return new HookBuilderImpl(slotFor(origin));
+        } catch (IllegalArgumentException e) {
+            throw new HookFailedError("Cannot hook " + origin, e);
+        }
+    }
+
+    @NonNull
+    @Override
+    public HookBuilder hook(@NonNull ClassLoader classLoader, @NonNull String className,
+                            @NonNull String methodName, @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        return hook(resolve(classLoader, className, methodName, descriptor));
+    }
+
+    @NonNull
+    @Override
+    public HookBuilder hookClassInitializer(@NonNull Class<?> origin) {
+        if (origin.getPackage() == ReferenceFramework.class.getPackage()) {
+            throw new IllegalArgumentException("Cannot hook framework internal class " + origin);
+        }
+        return new HookBuilderImpl(classInitializers.get(origin).slot);
+    }
+
+    @NonNull
+    @Override
+    public HookBatch hookAll(@NonNull Collection<? extends Executable> origins) {
+        return new HookBatchImpl(this, origins);
+    }
+
+    @NonNull
+    @Override
+    public DeferredHookBuilder hookDeferred(@NonNull ClassLoader classLoader, @NonNull String className,
+                                            @NonNull String methodName, @NonNull String descriptor) {
+        if (methodName.isEmpty() || !descriptor.startsWith("(") || descriptor.indexOf(')') < 0) {
+            throw new IllegalArgumentException("Invalid method: " + methodName + descriptor);
+        }
+        return new DeferredHookBuilderImpl(this, classLoader, className, methodName, descriptor);
+    }
+
+    /**
+     * The JVM reference has no inlining to undo, so deoptimizing always succeeds.
+     */
+    @Override
+    public boolean deoptimize(@NonNull Executable executable) {
+        return true;
+    }
+
+    @NonNull
+    @Override
+    public BitSet deoptimize(@NonNull Collection<? extends Executable> executables) {
+        var result = new BitSet(executables.size());
+        result.set(0, executables.size());
+        return result;
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public Invoker<?, Method> getInvoker(@NonNull Method method) {
+        return (Invoker<?, Method>) slotFor(method).invoker(Invoker.Type.Chain.FULL);
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CtorInvoker<T> getInvoker(@NonNull Constructor<T> constructor) {
+        return (CtorInvoker<T>) slotFor(constructor).invoker(Invoker.Type.Chain.FULL);
+    }
+
+    @NonNull
+    @Override
+    public Invoker<?, Method> getInvoker(@NonNull ClassLoader classLoader, @NonNull String className,
+                                         @NonNull String methodName, @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        if (!(resolve(classLoader, className, methodName, descriptor) instanceof Method method)) {
+            throw new IllegalArgumentException("Not a method: " + methodName);
+        }
+        return getInvoker(method);
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CtorInvoker<T> getInvoker(@NonNull ClassLoader classLoader, @NonNull String className,
+                                         @NonNull String descriptor) throws ClassNotFoundException, NoSuchMethodException {
+        return getInvoker((Constructor<T>) resolve(classLoader, className, "<init>", descriptor));
+    }
+
+    @Override
+    public void log(int priority, @Nullable String tag, @NonNull String msg) {
+        log(priority, tag, msg, null);
+    }
+
+    @Override
+    public void log(int priority, @Nullable String tag, @NonNull String msg, @Nullable Throwable tr) {
+        logWriter.log(priority, tag, msg, tr);
+    }
+
+    @Override
+    public void log(@NonNull List<? extends LogRecord> records) {
+        logWriter.log(records);
+    }
+
+    @Override
+    public boolean isLoggable(int priority, @Nullable String tag) {
+        return logWriter.isLoggable(priority);
+    }
+
+    @NonNull
+    @Override
+    public EventBuilder logEvent(int priority, @Nullable String tag) {
+        var log = eventLog;
+        if (log == null || !isLoggable(priority, tag)) {
+            return EventLog.DISCARD;
+        }
+        return log.start(priority, tag);
+    }
+
+    @NonNull
+    @Override
+    public ApplicationInfo getModuleApplicationInfo() {
+        var info = moduleApplicationInfo;
+        if (info == null) {
+            synchronized (this) {
+                info = moduleApplicationInfo;
+                if (info == null) {
+                    moduleApplicationInfo = info = new ApplicationInfo();
+                }
+            }
+        }
+        return info;
+    }
+
+    @NonNull
+    @Override
+    public SharedPreferences getRemotePreferences(@NonNull String group) {
+        return preferencesGroup(group).view();
+    }
+
+    @NonNull
+    @Override
+    public RemotePreferencesSnapshot getRemotePreferencesSnapshot(@NonNull String group) {
+        return preferencesGroup(group).snapshot();
+    }
+
+    @NonNull
+    @Override
+    public <T> PreferenceKey<T> getPreferenceKey(@NonNull String group, @NonNull String key,
+                                                 @NonNull Class<T> type, @Nullable T defValue) {
+        return PreferenceKey.of(preferencesGroup(group)::snapshot, key, type, defValue);
+    }
+
+    @NonNull
+    @Override
+    public PreferenceKey.IntKey getIntKey(@NonNull String group, @NonNull String key, int defValue) {
+        return PreferenceKey.ofInt(preferencesGroup(group)::snapshot, key, defValue);
+    }
+
+    @NonNull
+    @Override
+    public PreferenceKey.BooleanKey getBooleanKey(@NonNull String group, @NonNull String key, boolean defValue) {
+        return PreferenceKey.ofBoolean(preferencesGroup(group)::snapshot, key, defValue);
+    }
+
+    @Override
+    public void registerRemotePreferencesListener(@NonNull String group, @NonNull RemotePreferencesListener listener) {
+        preferencesGroup(group).register(listener);
+    }
+
+    @Override
+    public void unregisterRemotePreferencesListener(@NonNull String group, @NonNull RemotePreferencesListener listener) {
+        preferencesGroup(group).unregister(listener);
+    }
+
+    @Override
+    public long getRemoteFilesGeneration() {
+        return remoteFiles.generation();
+    }
+
+    @NonNull
+    @Override
+    public String[] listRemoteFiles() {
+        return remoteFiles.names();
+    }
+
+    @Override
+    public void listRemoteFiles(@Nullable String startAfter, @NonNull RemoteFileVisitor visitor) {
+        remoteFiles.list(startAfter, Objects.requireNonNull(visitor));
+    }
+
+    @NonNull
+    @Override
+    public ParcelFileDescriptor openRemoteFile(@NonNull String name) throws FileNotFoundException {
+        return remoteFiles.open(name);
+    }
+}
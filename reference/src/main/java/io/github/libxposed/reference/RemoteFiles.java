@@ -0,0 +1,154 @@
+package io.github.libxposed.reference;
+
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * The module's shared data directory, kept in a temporary directory. Every write goes to a new file
+ * that then replaces the entry, like the atomic replacement done by module apps on devices, so
+ * descriptors opened earlier keep reading the old content.
+ */
+final class RemoteFiles {
+    /**
+     * Number of entries fetched at a time by {@link #list(String, XposedInterface.RemoteFileVisitor)},
+     * standing in for the page size of the IPC on devices.
+     */
+    static final int PAGE_SIZE = 64;
+
+    private record Entry(String name, File file, long size, long generation, byte[] hash)
+            implements XposedInterface.RemoteFileInfo {
+        @NonNull
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public long getGeneration() {
+            return generation;
+        }
+
+        @NonNull
+        @Override
+        public byte[] getContentHash() {
+            return hash.clone();
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private File directory;
+    private volatile long generation;
+
+    static boolean isValidName(String name) {
+        return !name.isEmpty() && !name.equals(".") && !name.equals("..")
+                && name.indexOf('/') < 0 && name.indexOf(File.separatorChar) < 0 && name.indexOf('\0') < 0;
+    }
+
+    long generation() {
+        return generation;
+    }
+
+    String[] names() {
+        return entries.keySet().toArray(new String[0]);
+    }
+
+    void list(String startAfter, XposedInterface.RemoteFileVisitor visitor) {
+        var page = new ArrayList<Entry>(PAGE_SIZE);
+        for (; ; ) {
+            var remaining = startAfter == null ? entries.values() : entries.tailMap(startAfter, false).values();
+            for (var entry : remaining) {
+                if (page.size() == PAGE_SIZE) break;
+                page.add(entry);
+            }
+            for (var entry : page) {
+                if (!visitor.visit(entry)) {
+                    return;
+                }
+            }
+            if (page.size() < PAGE_SIZE) {
+                return;
+            }
+            startAfter = page.get(page.size() - 1).name;
+            page.clear();
+        }
+    }
+
+    synchronized void write(String name, byte[] content) throws IOException {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid file name: " + name);
+        }
+        if (directory == null) {
+            directory = Files.createTempDirectory("xposed-remote-files").toFile();
+            directory.deleteOnExit();
+        }
+        var file = File.createTempFile("remote", null, directory);
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+        long next = generation + 1;
+        replace(name, new Entry(name, file, content.length, next, sha256(content)));
+        generation = next;
+    }
+
+    synchronized boolean delete(String name) {
+        if (!entries.containsKey(name)) {
+            return false;
+        }
+        replace(name, null);
+        generation++;
+        return true;
+    }
+
+    private void replace(String name, Entry entry) {
+        var old = entry == null ? entries.remove(name) : entries.put(name, entry);
+        if (old != null) {
+            // Descriptors opened earlier keep the content of the deleted file readable
+            // noinspection ResultOfMethodCallIgnored
+            old.file.delete();
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    ParcelFileDescriptor open(String name) throws FileNotFoundException {
+        if (!isValidName(name)) {
+            throw new FileNotFoundException("Forbidden file name: " + name);
+        }
+        for (; ; ) {
+            var entry = entries.get(name);
+            if (entry == null) {
+                throw new FileNotFoundException(name);
+            }
+            try {
+                return ParcelFileDescriptor.open(entry.file, ParcelFileDescriptor.MODE_READ_ONLY);
+            } catch (FileNotFoundException e) {
+                if (entries.get(name) == entry) {
+                    throw e;
+                }
+                // Replaced while opening; retry with the new file
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.libxposed.reference;
+
+/**
+ * Return type categories of hooked executables. Primitive results travel through the chain as raw
+ * {@code long} bits so that typed hookers never box them.
+ */
+enum ReturnKind {
+    OBJECT, BOOLEAN, BYTE, CHAR, SHORT, INT, LONG, FLOAT, DOUBLE;
+
+    static ReturnKind of(Class<?> type) {
+        if (type == boolean.class) return BOOLEAN;
+        if (type == byte.class) return BYTE;
+        if (type == char.class) return CHAR;
+        if (type == short.class) return SHORT;
+        if (type == int.class) return INT;
+        if (type == long.class) return LONG;
+        if (type == float.class) return FLOAT;
+        if (type == double.class) return DOUBLE;
+        return OBJECT;
+    }
+
+    long toBits(Object value) {
+        return switch (this) {
+            case BOOLEAN -> (Boolean) value ? 1 : 0;
+            case BYTE -> (Byte) value;
+            case CHAR -> (Character) value;
+            case SHORT -> (Short) value;
+            case INT -> (Integer) value;
+            case LONG -> (Long) value;
+            case FLOAT -> Float.floatToRawIntBits((Float) value);
+            case DOUBLE -> Double.doubleToRawLongBits((Double) value);
+            case OBJECT -> throw new ClassCastException("Result is not a primitive");
+        };
+    }
+
+    Object box(long bits) {
+        return switch (this) {
+            case BOOLEAN -> bits != 0;
+            case BYTE -> (byte) bits;
+            case CHAR -> (char) bits;
+            case SHORT -> (short) bits;
+            case INT -> (int) bits;
+            case LONG -> bits;
+            case FLOAT -> Float.intBitsToFloat((int) bits);
+            case DOUBLE -> Double.longBitsToDouble(bits);
+            case OBJECT -> throw new ClassCastException("Result is not a primitive");
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.libxposed.reference;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.libxposed.api.XposedInterface;
+
+/**
+ * Records hook statistics in striped counters, so concurrent callers of a hooked method do not
+ * contend on a single memory location. Latencies go to a histogram with power-of-two buckets.
+ */
+final class StatsRecorder {
+    private static final int BUCKETS = 64;
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+    StatsRecorder() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    void record(long nanos, boolean threw) {
+        nanos = Math.max(nanos, 0);
+        invocations.increment();
+        if (threw) {
+            exceptions.increment();
+        }
+        totalNanos.add(nanos);
+        histogram[BUCKETS - 1 - Long.numberOfLeadingZeros(nanos | 1)].increment();
+    }
+
+    XposedInterface.HookStats snapshot() {
+        var counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return new Snapshot(invocations.sum(), exceptions.sum(), totalNanos.sum(), counts);
+    }
+
+    private record Snapshot(long invocationCount, long exceptionCount, long totalTimeNanos,
+                            long[] histogram) implements XposedInterface.HookStats {
+        @Override
+        public long getInvocationCount() {
+            return invocationCount;
+        }
+
+        @Override
+        public long getExceptionCount() {
+            return exceptionCount;
+        }
+
+        @Override
+        public long getTotalTimeNanos() {
+            return totalTimeNanos;
+        }
+
+        /**
+         * Returns the upper bound of the histogram bucket containing the percentile.
+         */
+        @Override
+        public long getPercentileNanos(double percentile) {
+            if (!(percentile > 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("percentile out of range: " + percentile);
+            }
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return i == BUCKETS - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.libxposed.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.reference.ReferenceFramework;
+
+public class AsyncLoggingTest {
+    private static final String DROPPED = "2 log records dropped because the buffer was full";
+
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private XposedInterfaceWrapper wrapper;
+
+    @Before
+    public void setUp() {
+        // Holds the first batch until released, so the test can fill the buffer meanwhile
+        var sink = new ReferenceFramework.LogSink() {
+            @Override
+            public void write(int priority, @Nullable String tag, @NonNull String msg, @Nullable Throwable tr) {
+                batches.add(List.of(msg));
+            }
+
+            @Override
+            public void write(@NonNull List<? extends XposedInterface.LogRecord> records) {
+                var messages = new ArrayList<String>();
+                for (var record : records) {
+                    messages.add(record.getMessage());
+                }
+                batches.add(messages);
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        wrapper = new XposedInterfaceWrapper();
+        wrapper.attachFramework(new ReferenceFramework(XposedInterface.ExceptionMode.DEFAULT, sink));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    /**
+     * Blocks the drainer on a first record, then logs six records into a buffer of four.
+     */
+    private void overflow(XposedInterfaceWrapper.LogOverflowPolicy policy) throws InterruptedException {
+        wrapper.setAsyncLogging(4, policy);
+        wrapper.log(Log.INFO, "test", "r0");
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 6; i++) {
+            wrapper.log(Log.INFO, "test", "r" + i);
+        }
+        assertEquals(2, wrapper.getDroppedLogCount());
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void dropNewestKeepsBufferedRecords() throws InterruptedException {
+        overflow(XposedInterfaceWrapper.LogOverflowPolicy.DROP_NEWEST);
+        assertEquals(Arrays.asList(List.of("r0"), List.of("r1", "r2", "r3", "r4", DROPPED)), batches);
+    }
+
+    @Test
+    public void dropOldestKeepsLatestRecords() throws InterruptedException {
+        overflow(XposedInterfaceWrapper.LogOverflowPolicy.DROP_OLDEST);
+        assertEquals(Arrays.asList(List.of("r0"), List.of("r3", "r4", "r5", "r6", DROPPED)), batches);
+    }
+
+    @Test
+    public void droppedCountIsZeroWithoutAsyncLogging() {
+        wrapper.log(Log.INFO, "test", "r0");
+        assertEquals(0, wrapper.getDroppedLogCount());
+        assertEquals(List.of(List.of("r0")), batches);
+    }
+}
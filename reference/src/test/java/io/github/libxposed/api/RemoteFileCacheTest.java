@@ -0,0 +1,155 @@
+package io.github.libxposed.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import android.os.ParcelFileDescriptor;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import io.github.libxposed.reference.ReferenceFramework;
+
+public class RemoteFileCacheTest {
+    private static final class CountingFramework extends ReferenceFramework {
+        int opens;
+        int lists;
+        Long generation;
+
+        @Override
+        public long getRemoteFilesGeneration() {
+            var override = generation;
+            return override != null ? override : super.getRemoteFilesGeneration();
+        }
+
+        @NonNull
+        @Override
+        public String[] listRemoteFiles() {
+            lists++;
+            return super.listRemoteFiles();
+        }
+
+        @NonNull
+        @Override
+        public ParcelFileDescriptor openRemoteFile(@NonNull String name) throws FileNotFoundException {
+            opens++;
+            return super.openRemoteFile(name);
+        }
+    }
+
+    private CountingFramework framework;
+    private XposedInterfaceWrapper wrapper;
+
+    @Before
+    public void setUp() throws IOException {
+        framework = new CountingFramework();
+        framework.writeRemoteFile("a", bytes("alpha"));
+        framework.writeRemoteFile("b", bytes("beta"));
+        framework.writeRemoteFile("c", bytes("gamma"));
+        wrapper = new XposedInterfaceWrapper();
+        wrapper.attachFramework(framework);
+        wrapper.setRemoteFileCache(2);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String read(String name) throws IOException {
+        try (var in = new ParcelFileDescriptor.AutoCloseInputStream(wrapper.openRemoteFile(name))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void repeatedOpenIsServedFromCache() throws IOException {
+        assertEquals("alpha", read("a"));
+        assertEquals("alpha", read("a"));
+        assertEquals(1, framework.opens);
+
+        assertArrayEquals(new String[]{"a", "b", "c"}, wrapper.listRemoteFiles());
+        assertArrayEquals(new String[]{"a", "b", "c"}, wrapper.listRemoteFiles());
+        assertEquals(1, framework.lists);
+
+        var mapping = wrapper.mapRemoteFile("a");
+        var content = new byte[mapping.remaining()];
+        mapping.get(content);
+        assertArrayEquals(bytes("alpha"), content);
+        assertEquals(1, framework.opens);
+    }
+
+    @Test
+    public void generationBumpInvalidates() throws IOException {
+        assertEquals("alpha", read("a"));
+        wrapper.listRemoteFiles();
+
+        framework.writeRemoteFile("a", bytes("delta"));
+        assertEquals("delta", read("a"));
+        assertEquals(2, framework.opens);
+
+        framework.writeRemoteFile("d", bytes("epsilon"));
+        assertArrayEquals(new String[]{"a", "b", "c", "d"}, wrapper.listRemoteFiles());
+        assertEquals(2, framework.lists);
+    }
+
+    @Test
+    public void leastRecentlyOpenedIsEvicted() throws IOException {
+        read("a");
+        read("b");
+        read("a");
+        read("c");
+        assertEquals(3, framework.opens);
+
+        read("a");
+        assertEquals(3, framework.opens);
+        read("b");
+        assertEquals(4, framework.opens);
+    }
+
+    @Test
+    public void negativeGenerationBypassesCache() throws IOException {
+        framework.generation = -1L;
+        assertEquals("alpha", read("a"));
+        assertEquals("alpha", read("a"));
+        assertEquals(2, framework.opens);
+
+        wrapper.listRemoteFiles();
+        wrapper.listRemoteFiles();
+        assertEquals(2, framework.lists);
+    }
+
+    @Test
+    public void staleGenerationMissesWithoutClearing() throws IOException {
+        read("a");
+        long current = framework.getRemoteFilesGeneration();
+
+        framework.generation = current - 1;
+        read("a");
+        assertEquals(2, framework.opens);
+
+        framework.generation = null;
+        read("a");
+        assertEquals(2, framework.opens);
+    }
+
+    @Test
+    public void failedMappingFallsBackToFramework() throws IOException {
+        read("a");
+        // Pin the generation so the entry stays current while its file is replaced; the stub
+        // descriptor duplicates by reopening its path, which then fails
+        framework.generation = framework.getRemoteFilesGeneration();
+        framework.writeRemoteFile("a", bytes("delta"));
+
+        var mapping = wrapper.mapRemoteFile("a");
+        var content = new byte[mapping.remaining()];
+        mapping.get(content);
+        assertArrayEquals(bytes("delta"), content);
+        assertEquals(2, framework.opens);
+    }
+}
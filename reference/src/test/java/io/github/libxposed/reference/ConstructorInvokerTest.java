@@ -0,0 +1,108 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.api.XposedInterface.ExceptionMode;
+import io.github.libxposed.api.XposedInterface.Invoker;
+import io.github.libxposed.reference.target.Target;
+
+public class ConstructorInvokerTest {
+    private ReferenceFramework framework;
+    private Constructor<Target.Point> point;
+
+    @Before
+    public void setUp() throws NoSuchMethodException {
+        framework = new ReferenceFramework(ExceptionMode.PASSTHROUGH);
+        point = Target.Point.class.getConstructor(int.class);
+    }
+
+    @Test
+    public void newInstanceRunsHooksBeforeAllocation() throws Throwable {
+        var seen = new ArrayList<Object>();
+        framework.hook(point).intercept(chain -> {
+            seen.add(chain.getThisObject());
+            chain.setIntArg(0, 10);
+            var result = chain.proceed();
+            seen.add(result);
+            return result;
+        });
+        var invoker = framework.getInvoker(point);
+        var instance = invoker.newInstance(1);
+        assertEquals(10, instance.x);
+        assertEquals(-1, instance.y);
+        assertEquals("p10", instance.name);
+        assertNull(seen.get(0));
+        assertSame(instance, seen.get(1));
+        assertEquals(10, ((Target.Point) invoker.getNewInstanceHandle().invoke(2)).x);
+    }
+
+    @Test
+    public void hookerMayReplaceInstance() throws Exception {
+        var replacement = new Target.Point(7);
+        framework.hook(point).intercept(chain -> replacement);
+        assertSame(replacement, framework.getInvoker(point).newInstance(1));
+
+        framework.hook(point).setPriority(XposedInterface.PRIORITY_HIGHEST).intercept(chain -> "not a point");
+        var e = assertThrows(InvocationTargetException.class, () -> framework.getInvoker(point).newInstance(1));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void originInvokerBypassesHooks() throws Throwable {
+        framework.hook(point).intercept(chain -> {
+            chain.setIntArg(0, 10);
+            return chain.proceed();
+        });
+        var origin = framework.getInvoker(point).setType(Invoker.Type.ORIGIN);
+        assertEquals(1, origin.newInstance(1).x);
+        assertEquals(2, ((Target.Point) origin.getNewInstanceHandle().invoke(2)).x);
+    }
+
+    @Test
+    public void badArgumentsAreRejectedBeforeTheCall() {
+        var invoker = framework.getInvoker(point);
+        assertThrows(IllegalArgumentException.class, () -> invoker.newInstance("1"));
+        assertThrows(IllegalArgumentException.class, () -> invoker.newInstance((Object) null));
+        assertThrows(IllegalArgumentException.class, () -> invoker.setType(Invoker.Type.ORIGIN).newInstance("1"));
+    }
+
+    @Test
+    public void existingInstancesCannotBeInitialized() throws Exception {
+        var invoker = framework.getInvoker(point);
+        var instance = new Target.Point(1);
+        assertThrows(UnsupportedOperationException.class, () -> invoker.invoke(instance, 3));
+        assertThrows(UnsupportedOperationException.class, () -> invoker.invokeSpecial(instance, 3));
+        assertThrows(UnsupportedOperationException.class, invoker::getMethodHandle);
+        assertEquals(1, instance.x);
+
+        var base = framework.getInvoker(Target.Base.class.getConstructor(String.class));
+        assertThrows(UnsupportedOperationException.class, () -> base.newInstanceSpecial(Target.Point.class, "special"));
+        assertEquals("special", base.newInstanceSpecial(Target.Base.class, "special").name);
+    }
+
+    @Test
+    public void classInitializerHooksRunOnce() {
+        framework.hookClassInitializer(Target.Lazy.class).intercept(chain -> {
+            Target.EVENTS.add("before");
+            var result = chain.proceed();
+            Target.EVENTS.add("after");
+            return result;
+        });
+        framework.initializeClass(Target.Lazy.class);
+        framework.initializeClass(Target.Lazy.class);
+        assertEquals(List.of("before", "initialized", "after"), Target.EVENTS);
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class EventLogTest {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private ReferenceFramework framework;
+
+    @Before
+    public void setUp() {
+        framework = new ReferenceFramework();
+        framework.setEventOutput(out);
+    }
+
+    private EventLogReader reader() throws IOException {
+        return new EventLogReader(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void fieldsRoundTrip() throws IOException {
+        long[] longs = {0, 1, -1, 63, -64, 64, 300, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        var builder = framework.logEvent(Log.DEBUG, "tag");
+        var expected = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < longs.length; i++) {
+            builder.put("long" + i, longs[i]);
+            expected.put("long" + i, longs[i]);
+        }
+        builder.put("double", -0.5).put("nan", Double.NaN).put("true", true).put("false", false)
+                .put("ascii", "plain").put("unicode", "é中😀").put("surrogate", "a\ud800b")
+                .put("empty", "").put("null", (String) null)
+                .write();
+        expected.put("double", -0.5);
+        expected.put("nan", Double.NaN);
+        expected.put("true", true);
+        expected.put("false", false);
+        expected.put("ascii", "plain");
+        expected.put("unicode", "é中😀");
+        expected.put("surrogate", "a?b");
+        expected.put("empty", "");
+        expected.put("null", null);
+
+        var event = reader().next();
+        assertEquals(Log.DEBUG, event.priority());
+        assertEquals("tag", event.tag());
+        assertEquals(Thread.currentThread().getId(), event.threadId());
+        assertEquals(expected, event.fields());
+    }
+
+    @Test
+    public void internedStringsAreSharedAcrossRecords() throws IOException {
+        int header = out.size();
+        framework.logEvent(Log.INFO, "tag").put("key", 1).write();
+        int firstSize = out.size() - header;
+        framework.logEvent(Log.INFO, "tag").put("key", 2).write();
+        int secondSize = out.size() - header - firstSize;
+        framework.logEvent(Log.WARN, null).put("key", 3).write();
+        assertTrue("later records only refer to interned strings", secondSize < firstSize - "tag".length() - "key".length());
+
+        var reader = reader();
+        assertEquals(Map.of("key", 1L), reader.next().fields());
+        var second = reader.next();
+        assertEquals("tag", second.tag());
+        assertEquals(Map.of("key", 2L), second.fields());
+        var third = reader.next();
+        assertNull(third.tag());
+        assertEquals(Map.of("key", 3L), third.fields());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void buildersAreReused() {
+        var first = framework.logEvent(Log.INFO, "tag");
+        first.put("key", 1).write();
+        assertSame(first, framework.logEvent(Log.INFO, "tag"));
+    }
+
+    @Test
+    public void abandonedBuilderIsReplacedOnce() {
+        var abandoned = framework.logEvent(Log.INFO, "tag").put("key", 1);
+        var replacement = framework.logEvent(Log.INFO, "tag");
+        assertNotSame(abandoned, replacement);
+        replacement.write();
+        assertSame(replacement, framework.logEvent(Log.INFO, "tag"));
+    }
+
+    @Test
+    public void writtenBuilderRejectsFields() {
+        var builder = framework.logEvent(Log.INFO, "tag");
+        builder.write();
+        assertThrows(IllegalStateException.class, builder::write);
+        assertThrows(IllegalStateException.class, () -> builder.put("key", 1));
+    }
+
+    @Test
+    public void discardedBelowMinPriority() throws IOException {
+        framework.setMinLogPriority(Log.WARN);
+        framework.logEvent(Log.INFO, "tag").put("key", 1).write();
+        assertNull(reader().next());
+    }
+}
@@ -0,0 +1,250 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.github.libxposed.api.XposedInterface;
+import io.github.libxposed.api.XposedInterface.ExceptionMode;
+import io.github.libxposed.api.XposedInterface.Invoker;
+import io.github.libxposed.reference.target.Target;
+
+public class HookChainTest {
+    private final List<String> logged = new ArrayList<>();
+    private final Target target = new Target();
+    private ReferenceFramework framework;
+    private Method add;
+    private Method concat;
+    private Method fail;
+
+    @Before
+    public void setUp() throws NoSuchMethodException {
+        // Hookers assert with AssertionError, which protective hooks would swallow
+        framework = new ReferenceFramework(ExceptionMode.PASSTHROUGH, (priority, tag, msg, tr) -> logged.add(msg));
+        add = Target.class.getMethod("add", int.class, int.class);
+        concat = Target.class.getMethod("concat", String.class, String.class);
+        fail = Target.class.getMethod("fail");
+    }
+
+    private Object call(Method method, Object... args) throws ReflectiveOperationException {
+        return framework.getInvoker(method).invoke(target, args);
+    }
+
+    @Test
+    public void hooksRunByDescendingPriority() throws Exception {
+        var order = new ArrayList<Integer>();
+        for (int priority : new int[]{0, 10, -10, 5}) {
+            framework.hook(add).setPriority(priority).intercept(chain -> {
+                order.add(priority);
+                return chain.proceed();
+            });
+        }
+        assertEquals(3, call(add, 1, 2));
+        assertEquals(Arrays.asList(10, 5, 0, -10), order);
+    }
+
+    @Test
+    public void hooksOfEqualPriorityRunInInstallationOrder() throws Exception {
+        var order = new ArrayList<String>();
+        for (var name : new String[]{"a", "b", "c"}) {
+            framework.hook(add).intercept(chain -> {
+                order.add(name);
+                return chain.proceed();
+            });
+        }
+        call(add, 1, 2);
+        assertEquals(Arrays.asList("a", "b", "c"), order);
+    }
+
+    @Test
+    public void setArgReachesDownstreamLinks() throws Exception {
+        var seen = new ArrayList<Object>();
+        framework.hook(add).setPriority(XposedInterface.PRIORITY_HIGHEST).intercept(chain -> {
+            chain.setIntArg(0, 10);
+            return chain.proceed();
+        });
+        framework.hook(add).intercept(chain -> {
+            seen.addAll(chain.getArgs());
+            return chain.proceed();
+        });
+        assertEquals(12, call(add, 1, 2));
+        assertEquals(Arrays.asList(10, 2), seen);
+    }
+
+    @Test
+    public void getArgsReturnsSnapshot() throws Exception {
+        var snapshots = new ArrayList<List<Object>>();
+        framework.hook(add).setPriority(XposedInterface.PRIORITY_HIGHEST).intercept(chain -> {
+            snapshots.add(chain.getArgs());
+            chain.setIntArg(0, 10);
+            snapshots.add(chain.getArgs());
+            chain.setIntArg(1, 20);
+            var result = chain.proceed();
+            snapshots.add(chain.getArgs());
+            return result;
+        });
+        framework.hook(add).intercept(chain -> {
+            chain.setIntArg(1, 30);
+            return chain.proceed();
+        });
+        assertEquals(40, call(add, 1, 2));
+        assertEquals(Arrays.asList(1, 2), snapshots.get(0));
+        assertEquals(Arrays.asList(10, 2), snapshots.get(1));
+        assertEquals("downstream replacements do not leak upstream", Arrays.asList(10, 20), snapshots.get(2));
+    }
+
+    @Test
+    public void setArgRejectsWrongType() throws Exception {
+        var errors = new ArrayList<Throwable>();
+        framework.hook(concat).intercept(chain -> {
+            errors.add(assertThrows(ClassCastException.class, () -> chain.setArg(0, 1)));
+            errors.add(assertThrows(ClassCastException.class, () -> chain.setIntArg(0, 1)));
+            return chain.proceed();
+        });
+        assertEquals("ab", call(concat, "a", "b"));
+        assertEquals(2, errors.size());
+    }
+
+    @Test
+    public void unhookDuringDispatchOnlyAffectsLaterCalls() throws Exception {
+        var order = new ArrayList<String>();
+        var inner = framework.hook(add).intercept(chain -> {
+            order.add("inner");
+            return chain.proceed();
+        });
+        var outer = new XposedInterface.HookHandle[1];
+        outer[0] = framework.hook(add).setPriority(XposedInterface.PRIORITY_HIGHEST).intercept(chain -> {
+            order.add("outer");
+            outer[0].unhook();
+            inner.unhook();
+            return chain.proceed();
+        });
+        assertEquals(3, call(add, 1, 2));
+        assertEquals(Arrays.asList("outer", "inner"), order);
+        order.clear();
+        assertEquals(3, call(add, 1, 2));
+        assertEquals(List.of(), order);
+    }
+
+    @Test
+    public void protectiveHookerFailingBeforeProceedRunsRestOfChain() throws Exception {
+        var order = new ArrayList<String>();
+        framework.hook(add).setPriority(XposedInterface.PRIORITY_HIGHEST).setExceptionMode(ExceptionMode.PROTECTIVE).intercept(chain -> {
+            order.add("outer");
+            throw new IllegalStateException("broken");
+        });
+        framework.hook(add).intercept(chain -> {
+            order.add("inner");
+            chain.setIntArg(0, 10);
+            return chain.proceed();
+        });
+        assertEquals(12, call(add, 1, 2));
+        assertEquals(Arrays.asList("outer", "inner"), order);
+        assertEquals(List.of("Hooker of " + add + " failed"), logged);
+    }
+
+    @Test
+    public void protectiveHookerFailingAfterProceedKeepsResult() throws Exception {
+        var calls = new int[1];
+        framework.hook(add).setPriority(XposedInterface.PRIORITY_HIGHEST).setExceptionMode(ExceptionMode.PROTECTIVE).intercept(chain -> {
+            chain.proceed();
+            throw new IllegalStateException("broken");
+        });
+        framework.hook(add).intercept(chain -> {
+            calls[0]++;
+            return 100;
+        });
+        assertEquals(100, call(add, 1, 2));
+        assertEquals("the chain below must not run twice", 1, calls[0]);
+        assertEquals(1, logged.size());
+    }
+
+    @Test
+    public void protectiveHookerPropagatesExceptionOfProceed() {
+        framework.hook(fail).setExceptionMode(ExceptionMode.PROTECTIVE).intercept(XposedInterface.Chain::proceed);
+        var e = assertThrows(InvocationTargetException.class, () -> call(fail));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals("exceptions of the original are not hooker failures", List.of(), logged);
+    }
+
+    @Test
+    public void passthroughHookerFailurePropagates() {
+        var error = new IllegalStateException("broken");
+        framework.hook(add).intercept(chain -> {
+            throw error;
+        });
+        var e = assertThrows(InvocationTargetException.class, () -> call(add, 1, 2));
+        assertSame(error, e.getCause());
+        assertEquals(List.of(), logged);
+    }
+
+    @Test
+    public void originInvokerBypassesHooks() throws Throwable {
+        framework.hook(add).intercept(chain -> 100);
+        var chain = framework.getInvoker(add);
+        var origin = chain.setType(Invoker.Type.ORIGIN);
+        assertEquals(100, chain.invoke(target, 1, 2));
+        assertEquals(3, origin.invoke(target, 1, 2));
+        MethodHandle chainHandle = chain.getMethodHandle();
+        MethodHandle originHandle = origin.getMethodHandle();
+        assertEquals(100, (int) chainHandle.invokeExact(target, 1, 2));
+        assertEquals(3, (int) originHandle.invokeExact(target, 1, 2));
+    }
+
+    @Test
+    public void chainInvokerSkipsHooksAboveMaxPriority() throws Exception {
+        var order = new ArrayList<Integer>();
+        for (int priority : new int[]{10, 0}) {
+            framework.hook(add).setPriority(priority).intercept(chain -> {
+                order.add(priority);
+                return chain.proceed();
+            });
+        }
+        var invoker = framework.getInvoker(add).setType(new Invoker.Type.Chain(5));
+        assertEquals(3, invoker.invoke(target, 1, 2));
+        assertEquals(List.of(0), order);
+        assertSame(invoker, framework.getInvoker(add).setType(new Invoker.Type.Chain(5)));
+    }
+
+    @Test
+    public void deferredHookFailureIsLoggedInsteadOfThrown() {
+        var handle = framework.hookDeferred(Target.class.getClassLoader(), Target.Shape.class.getName(), "area", "()I")
+                .intercept(XposedInterface.Chain::proceed);
+        assertFalse(handle.isInstalled());
+        assertNull(handle.getHookHandle());
+        assertEquals(1, logged.size());
+        assertTrue(logged.get(0).contains("area()I"));
+
+        assertThrows(IllegalArgumentException.class, () -> framework.hookDeferred(
+                Target.class.getClassLoader(), Target.class.getName(), "add", "(II)I").intercept(null));
+    }
+
+    @Test
+    public void badArgumentsAreRejectedBeforeTheCall() {
+        var hooked = new ArrayList<Object>();
+        framework.hook(add).intercept(chain -> {
+            hooked.add(chain.getArgs());
+            return chain.proceed();
+        });
+        var invoker = framework.getInvoker(add);
+        assertThrows(IllegalArgumentException.class, () -> invoker.invoke(target, 1, "2"));
+        assertThrows(IllegalArgumentException.class, () -> invoker.invoke(target, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> invoker.invoke(target, 1, 2L));
+        assertThrows(IllegalArgumentException.class, () -> invoker.invoke(target, 1));
+        assertThrows(IllegalArgumentException.class, () -> invoker.setType(Invoker.Type.ORIGIN).invoke(target, 1, "2"));
+        assertTrue(hooked.isEmpty());
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.util.Log;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import io.github.libxposed.api.XposedInterface;
+
+public class LogRateLimiterTest {
+    @Test
+    public void bucketsAreSeparatePerTagAndPriority() {
+        var limiter = new LogRateLimiter(1, 1, (priority, tag, suppressed) -> {
+        });
+        assertEquals(0, limiter.acquire(Log.INFO, "a"));
+        assertEquals(LogRateLimiter.SUPPRESSED, limiter.acquire(Log.INFO, "a"));
+        assertEquals(0, limiter.acquire(Log.WARN, "a"));
+        assertEquals(0, limiter.acquire(Log.INFO, "b"));
+    }
+
+    @Test
+    public void suppressedRecordsAreReportedWithoutLaterRecords() throws InterruptedException {
+        var reports = new LinkedBlockingQueue<Long>();
+        var limiter = new LogRateLimiter(1, 1, (priority, tag, suppressed) -> reports.add(suppressed));
+        assertEquals(0, limiter.acquire(Log.INFO, "test"));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(LogRateLimiter.SUPPRESSED, limiter.acquire(Log.INFO, "test"));
+        }
+        assertEquals(Long.valueOf(4), reports.poll(3, TimeUnit.SECONDS));
+        assertNull("counts are reported once", reports.poll(1200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void frameworkWritesSummaryToSink() throws InterruptedException {
+        var messages = new LinkedBlockingQueue<String>();
+        var framework = new ReferenceFramework(XposedInterface.ExceptionMode.DEFAULT,
+                (priority, tag, msg, tr) -> messages.add(tag + ": " + msg));
+        framework.setLogRateLimit(1, 1);
+        for (int i = 0; i < 3; i++) {
+            framework.log(Log.INFO, "test", "r" + i);
+        }
+        assertEquals("test: r0", messages.poll(3, TimeUnit.SECONDS));
+        assertEquals("test: 2 messages suppressed", messages.poll(3, TimeUnit.SECONDS));
+        assertEquals(List.of(), List.copyOf(messages));
+    }
+}
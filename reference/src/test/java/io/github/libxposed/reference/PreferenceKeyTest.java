@@ -0,0 +1,83 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+import io.github.libxposed.api.XposedInterface;
+
+public class PreferenceKeyTest {
+    private ReferenceFramework framework;
+
+    @Before
+    public void setUp() {
+        framework = new ReferenceFramework();
+    }
+
+    @Test
+    public void slotIsResolvedAgainAfterCommit() {
+        var count = framework.getIntKey("group", "count", -1);
+        var name = framework.getPreferenceKey("group", "name", String.class, "none");
+        assertFalse(count.isPresent());
+        assertEquals(-1, count.getInt());
+        assertEquals("none", name.get());
+
+        framework.editRemotePreferences("group").putInt("count", 1).putString("name", "a").commit();
+        assertEquals(1, count.getInt());
+        assertEquals("a", name.get());
+
+        // Adding keys grows the table of the snapshot, so existing keys may move to other slots
+        var editor = framework.editRemotePreferences("group");
+        for (int i = 0; i < 64; i++) {
+            editor.putInt("filler" + i, i);
+        }
+        editor.putInt("count", 2).commit();
+        assertEquals(2, count.getInt());
+        assertEquals("a", name.get());
+
+        framework.editRemotePreferences("group").remove("count").remove("name").commit();
+        assertFalse(count.isPresent());
+        assertEquals(-1, count.getInt());
+        assertEquals("none", name.get());
+    }
+
+    @Test
+    public void typeMismatchesThrowClassCastException() {
+        framework.editRemotePreferences("group").putString("text", "a").putInt("number", 1).commit();
+        assertThrows(ClassCastException.class, () -> framework.getIntKey("group", "text", 0).getInt());
+        assertThrows(ClassCastException.class, () -> framework.getBooleanKey("group", "number", false).getBoolean());
+        assertThrows(ClassCastException.class, () -> framework.getPreferenceKey("group", "number", String.class, null).get());
+        assertEquals(Integer.valueOf(1), framework.getPreferenceKey("group", "number", Integer.class, null).get());
+        assertNull(framework.getPreferenceKey("group", "missing", Long.class, null).get());
+    }
+
+    @Test
+    public void primitiveTypesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> framework.getPreferenceKey("group", "number", int.class, 0));
+    }
+
+    @Test
+    public void defaultImplementationsFailEagerlyWhenEmbedded() {
+        // An embedded framework relying on the default implementations
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            throw new UnsupportedOperationException(method.getName());
+        };
+        var embedded = (XposedInterface) Proxy.newProxyInstance(XposedInterface.class.getClassLoader(),
+                new Class<?>[]{XposedInterface.class}, handler);
+        var e = assertThrows(UnsupportedOperationException.class, () -> embedded.getIntKey("group", "count", 0));
+        assertTrue(e.getMessage().contains("getRemotePreferencesSnapshot"));
+        assertThrows(UnsupportedOperationException.class, () -> embedded.getBooleanKey("group", "flag", false));
+        assertThrows(UnsupportedOperationException.class, () -> embedded.getPreferenceKey("group", "name", String.class, null));
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class PreferencesGroupTest {
+    private static ReferenceFramework framework(boolean shared) {
+        var framework = new ReferenceFramework();
+        framework.setSharedRemotePreferences(shared);
+        return framework;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void assertStringSetValidated(boolean shared) {
+        var framework = framework(shared);
+        var editor = framework.editRemotePreferences("group");
+        assertThrows(IllegalArgumentException.class,
+                () -> editor.putStringSet("nulls", new HashSet<>(Arrays.asList("a", null))));
+        Set raw = new HashSet<>(Arrays.asList("a", 1));
+        assertThrows(IllegalArgumentException.class, () -> editor.putStringSet("ints", raw));
+
+        editor.putStringSet("valid", Set.of("a", "b")).commit();
+        assertEquals(Set.of("a", "b"), framework.getRemotePreferences("group").getStringSet("valid", null));
+        assertEquals(Set.of("a", "b"), framework.getRemotePreferencesSnapshot("group").getStringSet("valid", null));
+    }
+
+    @Test
+    public void stringSetElementsAreValidated() {
+        assertStringSetValidated(false);
+    }
+
+    @Test
+    public void stringSetElementsAreValidatedInSharedMode() {
+        assertStringSetValidated(true);
+    }
+
+    @Test
+    public void burstOfCommitsIsCoalesced() throws Exception {
+        var executor = Executors.newSingleThreadScheduledExecutor();
+        var release = new CountDownLatch(1);
+        var calls = Collections.synchronizedList(new ArrayList<Set<String>>());
+        var generations = Collections.synchronizedList(new ArrayList<Long>());
+        var keys = new HashSet<String>();
+        try {
+            // Holds the delivery back until the whole burst is committed
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            var group = new PreferencesGroup(new ReferenceFramework(), "group", executor, false);
+            group.register((name, snapshot, changedKeys) -> {
+                calls.add(changedKeys);
+                generations.add(snapshot.getGeneration());
+            });
+
+            for (int i = 0; i < 51; i++) {
+                keys.add("key" + i);
+                group.edit().putInt("key" + i, i).commit();
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1, calls.size());
+        assertEquals(keys, calls.get(0));
+        assertEquals(List.of(51L), generations);
+    }
+}
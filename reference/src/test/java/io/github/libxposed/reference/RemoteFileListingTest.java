@@ -0,0 +1,111 @@
+package io.github.libxposed.reference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.libxposed.api.XposedInterface;
+
+public class RemoteFileListingTest {
+    private static final int FILES = RemoteFiles.PAGE_SIZE * 2 + 10;
+
+    private ReferenceFramework framework;
+
+    @Before
+    public void setUp() throws IOException {
+        framework = new ReferenceFramework();
+        // Written in reverse, so the listing order is not the insertion order
+        for (int i = FILES - 1; i >= 0; i--) {
+            framework.writeRemoteFile(name(i), content(i));
+        }
+    }
+
+    private static String name(int i) {
+        return String.format("file%03d", i);
+    }
+
+    private static byte[] content(int i) {
+        return ("content of " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<XposedInterface.RemoteFileInfo> list(String startAfter, int limit) {
+        var visited = new ArrayList<XposedInterface.RemoteFileInfo>();
+        framework.listRemoteFiles(startAfter, info -> {
+            visited.add(info);
+            return visited.size() < limit;
+        });
+        return visited;
+    }
+
+    @Test
+    public void listsAllPagesInNameOrder() {
+        var visited = list(null, Integer.MAX_VALUE);
+        assertEquals(FILES, visited.size());
+        for (int i = 0; i < FILES; i++) {
+            assertEquals(name(i), visited.get(i).getName());
+            assertEquals(content(i).length, visited.get(i).getSize());
+        }
+    }
+
+    @Test
+    public void stopsWhenVisitorReturnsFalse() {
+        var visited = list(null, 3);
+        assertEquals(3, visited.size());
+        assertEquals(name(2), visited.get(2).getName());
+
+        visited = list(null, RemoteFiles.PAGE_SIZE + 1);
+        assertEquals(RemoteFiles.PAGE_SIZE + 1, visited.size());
+    }
+
+    @Test
+    public void resumesAfterGivenName() {
+        var visited = list(name(RemoteFiles.PAGE_SIZE - 1), Integer.MAX_VALUE);
+        assertEquals(FILES - RemoteFiles.PAGE_SIZE, visited.size());
+        assertEquals(name(RemoteFiles.PAGE_SIZE), visited.get(0).getName());
+
+        // The name to start after does not have to exist
+        visited = list("file000a", Integer.MAX_VALUE);
+        assertEquals(name(1), visited.get(0).getName());
+        assertEquals(0, list("g", Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    public void contentHashIsSha256() throws Exception {
+        var info = list(null, 1).get(0);
+        var expected = MessageDigest.getInstance("SHA-256").digest(content(0));
+        assertArrayEquals(expected, info.getContentHash());
+
+        var copy = info.getContentHash();
+        assertNotSame(copy, info.getContentHash());
+        copy[0]++;
+        assertArrayEquals(expected, info.getContentHash());
+    }
+
+    @Test
+    public void generationTracksLastChangeOfEachFile() throws Exception {
+        long before = framework.getRemoteFilesGeneration();
+        assertEquals(FILES, before);
+        assertEquals(FILES, list(null, 1).get(0).getGeneration());
+        assertEquals(1, list(name(FILES - 2), 1).get(0).getGeneration());
+
+        framework.writeRemoteFile(name(5), content(6));
+        assertEquals(before + 1, framework.getRemoteFilesGeneration());
+        var info = list(name(4), 1).get(0);
+        assertEquals(before + 1, info.getGeneration());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(content(6)), info.getContentHash());
+        assertEquals(FILES, list(null, 1).get(0).getGeneration());
+
+        framework.deleteRemoteFile(name(5));
+        assertEquals(before + 2, framework.getRemoteFilesGeneration());
+        assertEquals(name(6), list(name(4), 1).get(0).getName());
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.libxposed.reference.target;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hook targets shared by the tests. They live outside of the framework package, whose classes
+ * cannot be hooked.
+ */
+public class Target {
+    /**
+     * Events recorded by {@link Lazy} and the tests. Reading them does not initialize {@link Lazy}.
+     */
+    public static final List<String> EVENTS = new ArrayList<>();
+
+    public int add(int a, int b) {
+        return a + b;
+    }
+
+    public String concat(String a, String b) {
+        return a.concat(b);
+    }
+
+    public int fail() {
+        throw new IllegalStateException("fail");
+    }
+
+    public static class Base {
+        public final String name;
+
+        public Base(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class Point extends Base {
+        public final int x;
+        public int y = -1;
+
+        public Point(int x) {
+            super("p" + x);
+            this.x = x;
+        }
+    }
+
+    public abstract static class Shape {
+        public abstract int area();
+    }
+
+    public static class Lazy {
+        static {
+            Target.EVENTS.add("initialized");
+        }
+    }
+}
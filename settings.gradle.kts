@@ -17,3 +17,5 @@ dependencyResolutionManagement {
 rootProject.name = "libxposed-api"
 
 include(":api")
+include(":benchmark")
+include(":reference")